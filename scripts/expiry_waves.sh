@@ -0,0 +1,35 @@
+#!/bin/bash
+# =============================================================
+# Expiry waves: backend QPS under Scenario C, without and with ttlJitter
+# Writes one BackendQpsSampler CSV per run into results/
+# Needs the server on localhost:8080 and compiled classes (mvn compile)
+# =============================================================
+
+BASE_URL="http://localhost:8080"
+DURATION=${DURATION:-240}     # seconds per run
+TTL=${TTL:-30000}             # short TTL so several expiry cycles fit in one run
+LATENCY=${LATENCY:-20}
+THREADS=${THREADS:-20}
+JITTERS=${JITTERS:-"0 0.5"}
+CP=target/classes
+OUT=results
+
+if ! curl -s "$BASE_URL/stats" > /dev/null 2>&1; then
+    echo "❌ Server not running on $BASE_URL"
+    exit 1
+fi
+mkdir -p "$OUT"
+
+for jitter in $JITTERS; do
+    echo "⚙️  M1, ttl=${TTL}ms, latency=${LATENCY}ms, ttlJitter=$jitter, ${DURATION}s"
+    # Capacity above the key count, so only expiry (not eviction) sends traffic to the backend
+    curl -s "$BASE_URL/config?mode=M1&capacity=20000&ttl=$TTL&latency=$LATENCY&ttlJitter=$jitter" > /dev/null
+    curl -s "$BASE_URL/reset" > /dev/null
+
+    java -cp "$CP" com.example.cache.loadgen.BackendQpsSampler "$DURATION" "$OUT/backend_qps_jitter_$jitter.csv" &
+    SAMPLER=$!
+    # 5000 keys, 1000 of them taking 80% of requests
+    java -cp "$CP" com.example.cache.loadgen.LoadGenerator C "$DURATION" "$THREADS" 5000 1000 0.8
+    wait $SAMPLER
+    sleep 2
+done
@@ -0,0 +1,73 @@
+#!/usr/bin/env python3
+"""Plots backendQps from BackendQpsSampler CSVs as one SVG, standard library only.
+
+Usage: plot_qps.py <output.svg> <label>=<file.csv> [<label>=<file.csv> ...]
+"""
+import csv
+import sys
+
+WIDTH, HEIGHT = 900, 420
+LEFT, RIGHT, TOP, BOTTOM = 60, 20, 40, 50
+COLORS = ["#d62728", "#1f77b4", "#2ca02c", "#9467bd"]
+
+
+def load(path):
+    with open(path) as f:
+        rows = list(csv.DictReader(f))
+    return [(int(r["second"]), int(r["backendQps"])) for r in rows]
+
+
+def main():
+    if len(sys.argv) < 3:
+        print(__doc__)
+        sys.exit(1)
+    output = sys.argv[1]
+    series = []
+    for arg in sys.argv[2:]:
+        label, path = arg.rsplit("=", 1)
+        series.append((label, load(path)))
+
+    max_x = max(x for _, pts in series for x, _ in pts)
+    max_y = max(y for _, pts in series for _, y in pts)
+    step_y = max(1, round(max_y / 5, -1) or 1)
+    max_y = step_y * (int(max_y // step_y) + 1)
+    plot_w, plot_h = WIDTH - LEFT - RIGHT, HEIGHT - TOP - BOTTOM
+
+    def px(x):
+        return LEFT + plot_w * x / max_x
+
+    def py(y):
+        return TOP + plot_h * (1 - y / max_y)
+
+    out = [f'<svg xmlns="http://www.w3.org/2000/svg" width="{WIDTH}" height="{HEIGHT}" '
+           f'font-family="sans-serif" font-size="12">',
+           f'<rect width="{WIDTH}" height="{HEIGHT}" fill="white"/>',
+           f'<text x="{WIDTH / 2}" y="20" text-anchor="middle" font-size="14">Backend QPS per second</text>']
+    y = 0
+    while y <= max_y:
+        out.append(f'<line x1="{LEFT}" x2="{WIDTH - RIGHT}" y1="{py(y):.1f}" y2="{py(y):.1f}" stroke="#ddd"/>')
+        out.append(f'<text x="{LEFT - 6}" y="{py(y) + 4:.1f}" text-anchor="end">{int(y)}</text>')
+        y += step_y
+    for x in range(0, max_x + 1, 30):
+        out.append(f'<line x1="{px(x):.1f}" x2="{px(x):.1f}" y1="{TOP}" y2="{HEIGHT - BOTTOM}" stroke="#eee"/>')
+        out.append(f'<text x="{px(x):.1f}" y="{HEIGHT - BOTTOM + 16}" text-anchor="middle">{x}</text>')
+    out.append(f'<text x="{LEFT + plot_w / 2}" y="{HEIGHT - 12}" text-anchor="middle">seconds</text>')
+    out.append(f'<rect x="{LEFT}" y="{TOP}" width="{plot_w}" height="{plot_h}" fill="none" stroke="#333"/>')
+
+    for i, (label, pts) in enumerate(series):
+        color = COLORS[i % len(COLORS)]
+        line = " ".join(f"{px(x):.1f},{py(y):.1f}" for x, y in pts)
+        out.append(f'<polyline points="{line}" fill="none" stroke="{color}" stroke-width="1.2"/>')
+        ly = TOP + 16 + 18 * i
+        out.append(f'<line x1="{WIDTH - RIGHT - 170}" x2="{WIDTH - RIGHT - 150}" y1="{ly}" y2="{ly}" '
+                   f'stroke="{color}" stroke-width="2"/>')
+        out.append(f'<text x="{WIDTH - RIGHT - 144}" y="{ly + 4}">{label}</text>')
+    out.append("</svg>")
+
+    with open(output, "w") as f:
+        f.write("\n".join(out) + "\n")
+    print("Wrote " + output)
+
+
+if __name__ == "__main__":
+    main()
@@ -1,49 +1,206 @@
 package com.example.cache.api;
 
+import com.example.cache.backend.BackendException;
 import com.example.cache.backend.MockBackend;
 import com.example.cache.core.CacheService;
+import com.example.cache.core.CacheSnapshot;
+import com.example.cache.core.EncodedBody;
+import com.example.cache.core.Loaded;
+import com.example.cache.core.NearCache;
+import com.example.cache.core.ValueCodec;
 import com.example.cache.eviction.LruEvictionStrategy;
+import com.example.cache.eviction.PinningEvictionStrategy;
 import com.example.cache.eviction.SieveEvictionStrategy;
 import com.example.cache.refresh.CoalescingRefreshStrategy;
 import com.example.cache.refresh.NaiveTtlRefreshStrategy;
 import com.example.cache.refresh.ProbabilisticEarlyRefreshStrategy;
+import com.example.cache.refresh.RefreshBudget;
 import com.example.cache.refresh.RefreshStrategy;
 import com.example.cache.eviction.EvictionStrategy;
+import com.example.cache.hedge.DeadlineExceededException;
+import com.example.cache.hedge.HedgedLoader;
+import com.example.cache.hotkeys.HeavyHitterTracker;
+import com.example.cache.limit.AdaptiveConcurrencyLimiter;
+import com.example.cache.limit.LoadShedException;
+import com.example.cache.mrc.MissRatioCurveEstimator;
+import com.example.cache.namespace.NamespaceManager;
+import com.example.cache.shadow.ShadowPolicySelector;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 @RestController
 public class CacheController {
 
+    private static final Logger log = LoggerFactory.getLogger(CacheController.class);
+
     private final MockBackend backend;
-    private CacheService cacheService;
+    // One loader for every key, so a lookup doesn't allocate a closure per request
+    private final Function<String, Object> fetch;
+    private volatile CacheService cacheService;
+
+    // Lives across mode switches so popularity history is not lost: 64 counters, 1-in-16 sampling, 5s windows
+    private double hotKeyRate = 100.0;
+    private final HeavyHitterTracker hotKeyTracker = newHotKeyTracker();
+
+    // One per namespace, so one tenant's hot keys never pin or refresh under another's name
+    private final ConcurrentHashMap<String, HeavyHitterTracker> namespaceHotKeys = new ConcurrentHashMap<>();
     
     // Default configs
     private int capacity = 10_000;
     private long ttlMillis = 60_000;
+    private int l1Size = 0;          // 0 disables the L1 near cache
+    private long l1TtlMillis = 1_000;
+    private boolean pinHotKeys = false;
+    private boolean refreshHotKeys = false;
+    private int compressThreshold = 0; // 0 disables compression
+    private double compressMaxRatio = 0.9;
+    private boolean preSerialize = false;
+    private double ttlJitter = 0.0;
+    private int maxLoads = 0; // 0 disables the backend concurrency limiter
+    private long loadQueueMillis = 100;
+    private long deadlineMillis = 0; // 0 = wait as long as the load takes
+    private boolean hedge = false;
+    private double hedgePercentile = 95.0;
+    private double refreshAheadThreshold = 0; // 0 disables the refresh-ahead scheduler
+    private int refreshBudget = 50;
+    private boolean asyncEviction = false;
+    private double highWatermark = 1.0;
+    private double lowWatermark = 0.95;
+    private boolean handover = true;
+    private boolean adaptivePolicy = false;
+    private int shadowSampling = 64;
+
+    // Same refresh strategy, other eviction policy: LRU <-> SIEVE
+    private static final Map<String, String> SIEVE_TWIN = Map.of("M1", "M4", "M2", "M6", "M3", "M5");
+    private static final Map<String, String> LRU_TWIN = Map.of("M4", "M1", "M6", "M2", "M5", "M3");
+    private static final Set<String> MODES = Set.of("M0", "M1", "M2", "M3", "M4", "M5", "M6");
+
+    // Simulates the candidate policies on sampled traffic; null unless adaptivePolicy is on
+    private volatile ShadowPolicySelector shadow;
+
+    // Miss-ratio curve and optional auto-sizing; null unless mrc is on
+    private volatile MissRatioCurveEstimator mrc;
+    private boolean mrcEnabled = false;
+    private double targetHitRatio = 0; // 0 = publish the curve only
+    private int minCapacity = 100;
+    private int maxCapacity = 0;       // 0 = 4x capacity
     
     // Current Mode
     private String currentMode = "M1"; 
 
-    public CacheController(MockBackend backend) {
+    private static final long RETIRE_GRACE_MILLIS = 2_000;
+
+    // One backend behind every cache, main and namespaces alike, so they share one set of protections:
+    // one AIMD load limit, one hedging pool, one refresh-ahead budget and one pool for async refreshes
+    private final AdaptiveConcurrencyLimiter sharedLimiter = new AdaptiveConcurrencyLimiter(10, 1, 10);
+    private final HedgedLoader sharedHedgedLoader = new HedgedLoader(false, 95.0);
+    private final RefreshBudget sharedRefreshBudget = new RefreshBudget(50);
+    private final ExecutorService sharedRefreshPool = Executors.newFixedThreadPool(200);
+
+    // Per-tenant caches addressed with /item?ns=; built with the optional stages current when they were defined
+    private final NamespaceManager namespaces = new NamespaceManager(10_000, this::namespaceBuilder, CacheController::retire);
+
+    // Survives restarts; null unless cache.snapshot.dir is set
+    private CacheSnapshot snapshot;
+
+    public CacheController(
+        MockBackend backend,
+        @Value("${cache.snapshot.dir:}") String snapshotDir,
+        @Value("${cache.snapshot.intervalMs:10000}") long snapshotIntervalMs
+    ) {
         this.backend = backend;
+        this.fetch = backend::fetchFromBackend;
+        if (!snapshotDir.isEmpty()) {
+            try {
+                this.snapshot = new CacheSnapshot(Path.of(snapshotDir), snapshotIntervalMs);
+            } catch (IOException e) {
+                // A cold start is better than no start
+                log.warn("Cache snapshots disabled, cannot use {}: {}", snapshotDir, e.getMessage());
+            }
+        }
     }
 
     @PostConstruct
     public void init() {
         // Initialize default (M1: LRU + Naive)
-        switchMode("M1", capacity, ttlMillis);
+        switchMode("M1", capacity, ttlMillis, handover);
+    }
+
+    @PreDestroy
+    public void stop() {
+        namespaces.shutdown();
+        sharedHedgedLoader.shutdown();
+        sharedRefreshPool.shutdown();
+        if (snapshot != null) {
+            snapshot.close();
+        }
     }
 
     @GetMapping("/item")
-    public Object getItem(@RequestParam String key) throws Exception {
-        if ("M0".equals(currentMode)) {
-            return backend.fetchFromBackend(key);
+    public ResponseEntity<?> getItem(
+        @RequestParam String key,
+        @RequestParam(required = false) String ns,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) throws Exception {
+        // The ETag is checked before decoding, so a 304 never pays for inflating a compressed body
+        Object value = ns == null ? lookup(key, ifNoneMatch) : namespaces.service(ns).get(key, fetch, ifNoneMatch);
+        if (value instanceof EncodedBody body) {
+            // Pre-serialized: write the cached bytes as-is, or nothing at all if the client is current
+            if (body.matches(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(body.etag).build();
+            }
+            return ResponseEntity.ok()
+                .eTag(body.etag)
+                .contentType(MediaType.parseMediaType(body.contentType))
+                .body(body.body);
+        }
+        return ResponseEntity.ok(value);
+    }
+
+    // Shared by the HTTP endpoint and the memcached front end
+    public Object lookup(String key) throws Exception {
+        return lookup(key, null);
+    }
+
+    private Object lookup(String key, String ifNoneMatch) throws Exception {
+        CacheService service = cacheService;
+        if ("M0".equals(currentMode) || service == null) {
+            // No cache to hand a per-value TTL to
+            Object value = backend.fetchFromBackend(key);
+            return value instanceof Loaded l ? l.value : value;
+        }
+        ShadowPolicySelector s = shadow;
+        if (s != null) {
+            s.record(key);
         }
-        return cacheService.get(key, () -> backend.fetchFromBackend(key));
+        MissRatioCurveEstimator m = mrc;
+        if (m != null) {
+            m.record(key);
+        }
+        return service.get(key, fetch, ifNoneMatch);
     }
     
     @GetMapping("/config")
@@ -51,53 +208,361 @@ public class CacheController {
         @RequestParam String mode, 
         @RequestParam(defaultValue = "10000") int capacity,
         @RequestParam(defaultValue = "60000") long ttl,
-        @RequestParam(defaultValue = "500") long latency
+        @RequestParam(defaultValue = "500") long latency,
+        @RequestParam(defaultValue = "0") int l1Size,
+        @RequestParam(defaultValue = "1000") long l1Ttl,
+        @RequestParam(defaultValue = "100") double hotKeyRate,
+        @RequestParam(defaultValue = "false") boolean hotKeyPin,
+        @RequestParam(defaultValue = "false") boolean hotKeyRefresh,
+        @RequestParam(defaultValue = "0") int compressThreshold,
+        @RequestParam(defaultValue = "0.9") double compressMaxRatio,
+        @RequestParam(defaultValue = "0") int valueSize,
+        @RequestParam(defaultValue = "false") boolean preSerialize,
+        @RequestParam(defaultValue = "0") double ttlJitter,
+        @RequestParam(defaultValue = "0") int maxLoads,
+        @RequestParam(defaultValue = "100") long loadQueueMs,
+        @RequestParam(defaultValue = "0") long deadlineMs,
+        @RequestParam(defaultValue = "false") boolean hedge,
+        @RequestParam(defaultValue = "95") double hedgePercentile,
+        @RequestParam(defaultValue = "fixed") String distribution,
+        @RequestParam(defaultValue = "0.5") double latencySigma,
+        @RequestParam(defaultValue = "0") double tailRatio,
+        @RequestParam(defaultValue = "0") long tailLatency,
+        @RequestParam(defaultValue = "0") int backendConcurrency,
+        @RequestParam(defaultValue = "0") double loadFactor,
+        @RequestParam(defaultValue = "0") double errorRate,
+        @RequestParam(defaultValue = "0") long backendTtl,
+        @RequestParam(defaultValue = "0") double refreshAhead,
+        @RequestParam(defaultValue = "50") int refreshBudget,
+        @RequestParam(defaultValue = "false") boolean asyncEviction,
+        @RequestParam(defaultValue = "1.0") double highWatermark,
+        @RequestParam(defaultValue = "0.95") double lowWatermark,
+        @RequestParam(defaultValue = "true") boolean handover,
+        @RequestParam(defaultValue = "false") boolean adaptivePolicy,
+        @RequestParam(defaultValue = "64") int shadowSampling,
+        @RequestParam(defaultValue = "false") boolean mrc,
+        @RequestParam(defaultValue = "0") double targetHitRatio,
+        @RequestParam(defaultValue = "100") int minCapacity,
+        @RequestParam(defaultValue = "0") int maxCapacity,
+        @RequestParam(defaultValue = "10000") int namespaceCapacity
     ) {
+        // Reject bad input before touching anything, so a 400 leaves the running setup as it was
+        checkMode(mode);
+        MockBackend.Distribution dist = MockBackend.Distribution.valueOf(distribution.toUpperCase());
         backend.setLatencyMillis(latency);
-        switchMode(mode, capacity, ttl);
-        return "Switched to " + mode + " with capacity=" + capacity + ", ttl=" + ttl + ", latency=" + latency;
+        backend.setDistribution(dist, latencySigma);
+        backend.setTail(tailRatio, tailLatency);
+        backend.setMaxConcurrency(backendConcurrency);
+        backend.setLoadFactor(loadFactor);
+        backend.setErrorRate(errorRate);
+        backend.setValueTtlMillis(backendTtl);
+        backend.setValueSizeBytes(valueSize);
+        this.compressThreshold = compressThreshold;
+        this.compressMaxRatio = compressMaxRatio;
+        this.preSerialize = preSerialize;
+        this.ttlJitter = ttlJitter;
+        this.maxLoads = maxLoads;
+        this.loadQueueMillis = loadQueueMs;
+        this.deadlineMillis = deadlineMs;
+        this.hedge = hedge;
+        this.hedgePercentile = hedgePercentile;
+        this.refreshAheadThreshold = refreshAhead;
+        this.refreshBudget = refreshBudget;
+        if (maxLoads > 0) {
+            sharedLimiter.setMaxLimit(maxLoads);
+        }
+        sharedHedgedLoader.configure(hedge, hedgePercentile);
+        sharedRefreshBudget.setPerSecond(refreshBudget);
+        this.asyncEviction = asyncEviction;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.handover = handover;
+        this.adaptivePolicy = adaptivePolicy;
+        this.shadowSampling = shadowSampling;
+        this.mrcEnabled = mrc || targetHitRatio > 0;
+        this.targetHitRatio = targetHitRatio;
+        this.minCapacity = minCapacity;
+        this.maxCapacity = maxCapacity > 0 ? maxCapacity : 4 * capacity;
+        restartMrc(capacity);
+        namespaces.setPoolCapacity(namespaceCapacity);
+        this.l1Size = l1Size;
+        this.l1TtlMillis = l1Ttl;
+        this.pinHotKeys = hotKeyPin;
+        this.refreshHotKeys = hotKeyRefresh;
+        this.hotKeyRate = hotKeyRate;
+        hotKeyTracker.setHotRateThreshold(hotKeyRate);
+        namespaceHotKeys.values().forEach(t -> t.setHotRateThreshold(hotKeyRate));
+        switchMode(mode, capacity, ttl, handover);
+        return "Switched to " + mode + " with capacity=" + capacity + ", ttl=" + ttl + ", latency=" + latency
+            + ", l1Size=" + l1Size + ", l1Ttl=" + l1Ttl
+            + ", hotKeyRate=" + hotKeyRate + ", hotKeyPin=" + hotKeyPin + ", hotKeyRefresh=" + hotKeyRefresh
+            + ", compressThreshold=" + compressThreshold + ", valueSize=" + valueSize
+            + ", preSerialize=" + preSerialize + ", ttlJitter=" + ttlJitter
+            + ", maxLoads=" + maxLoads + ", loadQueueMs=" + loadQueueMs
+            + ", deadlineMs=" + deadlineMs + ", hedge=" + hedge + ", hedgePercentile=" + hedgePercentile
+            + ", distribution=" + distribution + ", latencySigma=" + latencySigma
+            + ", tailRatio=" + tailRatio + ", tailLatency=" + tailLatency
+            + ", backendConcurrency=" + backendConcurrency + ", loadFactor=" + loadFactor + ", errorRate=" + errorRate + ", backendTtl=" + backendTtl
+            + ", refreshAhead=" + refreshAhead + ", refreshBudget=" + refreshBudget
+            + ", asyncEviction=" + asyncEviction + ", highWatermark=" + highWatermark + ", lowWatermark=" + lowWatermark
+            + ", handover=" + handover + ", adaptivePolicy=" + adaptivePolicy + ", shadowSampling=" + shadowSampling
+            + ", mrc=" + mrc + ", targetHitRatio=" + targetHitRatio
+            + ", minCapacity=" + minCapacity + ", maxCapacity=" + this.maxCapacity
+            + ", namespaceCapacity=" + namespaceCapacity;
     }
 
 
     @GetMapping("/stats")
     public java.util.Map<String, Object> getStats() {
-        return java.util.Map.of(
-            "backendRequests", backend.getRequestCount(),
-            "cacheSize", cacheService != null ? cacheService.size() : 0
-        );
+        java.util.Map<String, Object> stats = new java.util.LinkedHashMap<>();
+        stats.put("backendRequests", backend.getRequestCount());
+        stats.put("backendErrors", backend.getErrorCount());
+        stats.put("backendInFlight", backend.getInFlight());
+        stats.put("backendQueueDepth", backend.getQueueDepth());
+        CacheService service = cacheService;
+        stats.put("cacheSize", service != null ? service.size() : 0);
+        if (service != null) {
+            stats.putAll(service.stats());
+        }
+        if (snapshot != null) {
+            stats.putAll(snapshot.stats());
+        }
+        ShadowPolicySelector s = shadow;
+        if (s != null) {
+            stats.putAll(s.stats());
+        }
+        return stats;
+    }
+
+    @GetMapping("/hotkeys")
+    public java.util.List<HeavyHitterTracker.HotKey> getHotKeys(
+        @RequestParam(defaultValue = "10") int k,
+        @RequestParam(required = false) String ns
+    ) {
+        if (ns == null) {
+            return hotKeyTracker.topK(k);
+        }
+        namespaces.service(ns); // 400 for an unknown namespace
+        HeavyHitterTracker tracker = namespaceHotKeys.get(ns);
+        return tracker == null ? java.util.List.of() : tracker.topK(k);
+    }
+
+    @GetMapping("/namespace")
+    public String defineNamespace(
+        @RequestParam String name,
+        @RequestParam(defaultValue = "1") double weight,
+        @RequestParam(defaultValue = "M1") String mode,
+        @RequestParam(defaultValue = "60000") long ttl
+    ) {
+        namespaces.define(name, weight, mode, ttl);
+        return "Namespace " + name + ": weight=" + weight + ", mode=" + mode + ", ttl=" + ttl;
+    }
+
+    @GetMapping("/namespace/clear")
+    public String clearNamespace(@RequestParam String name) {
+        namespaces.clear(name);
+        return "Cleared namespace " + name;
+    }
+
+    @GetMapping("/namespace/remove")
+    public String removeNamespace(@RequestParam String name) {
+        namespaces.remove(name);
+        namespaceHotKeys.remove(name);
+        return "Removed namespace " + name;
+    }
+
+    @GetMapping("/namespaces")
+    public java.util.Map<String, Object> getNamespaces() {
+        return namespaces.stats();
+    }
+
+    @GetMapping("/mrc")
+    public ResponseEntity<?> getMissRatioCurve() {
+        MissRatioCurveEstimator m = mrc;
+        if (m == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Enable with /config?...&mrc=true");
+        }
+        return ResponseEntity.ok(m.curve());
+    }
+
+    @ExceptionHandler({LoadShedException.class, DeadlineExceededException.class, java.util.concurrent.TimeoutException.class})
+    public ResponseEntity<String> onLoadShed(Exception e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> onBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+
+    @ExceptionHandler(BackendException.class)
+    public ResponseEntity<String> onBackendError(BackendException e) {
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(e.getMessage());
     }
 
     @GetMapping("/reset")
     public void reset() {
         backend.resetCount();
+        hotKeyTracker.clear();
+        namespaceHotKeys.values().forEach(HeavyHitterTracker::clear);
+        CacheService service = cacheService;
+        if (service != null) {
+            service.clear();
+        }
+    }
+
+    // A fresh curve per /config: the old one describes traffic against a different setup
+    private synchronized void restartMrc(int cap) {
+        if (mrc != null) {
+            mrc.shutdown();
+            mrc = null;
+        }
+        if (mrcEnabled) {
+            mrc = new MissRatioCurveEstimator(cap, targetHitRatio, minCapacity, maxCapacity, this::resize);
+        }
+    }
+
+    // Called by the estimator when another capacity is predicted to meet targetHitRatio
+    private synchronized void resize(int newCapacity) {
+        this.capacity = newCapacity;
         if (cacheService != null) {
-            cacheService.clear();
+            cacheService.resize(newCapacity);
+        }
+    }
+
+    // Called by the shadow selector when the other eviction policy keeps winning on sampled traffic
+    private synchronized void switchPolicy(String policy) {
+        String target = ShadowPolicySelector.SIEVE.equals(policy) ? SIEVE_TWIN.get(currentMode) : LRU_TWIN.get(currentMode);
+        if (target != null) {
+            // Always warm: an automatic switch must not cause the stampede it is trying to avoid
+            switchMode(target, capacity, ttlMillis, true);
         }
     }
 
-    private synchronized void switchMode(String mode, int cap, long ttl) {
+    private static String policyOf(String mode) {
+        return LRU_TWIN.containsKey(mode) ? ShadowPolicySelector.SIEVE : ShadowPolicySelector.LRU;
+    }
+
+    private static void checkMode(String mode) {
+        if (!MODES.contains(mode)) {
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+    }
+
+    private synchronized void switchMode(String mode, int cap, long ttl, boolean warm) {
+        checkMode(mode);
         this.currentMode = mode;
         this.capacity = cap;
         this.ttlMillis = ttl;
 
+        if ("M0".equals(mode)) {
+            // No cache, handled in getItem; stop the old service's background refreshes. Dropping the
+            // reference keeps /stats off the dead service and the next switch from warming from it.
+            if (cacheService != null) {
+                retire(cacheService);
+                cacheService = null;
+            }
+            return;
+        }
+
+        CacheService service = buildService(mode, cap, ttl, hotKeyTracker, new Stages(this));
+        if (snapshot != null) {
+            snapshot.bind(service);
+        }
+
+        CacheService previous = this.cacheService;
+        if (previous != null && warm) {
+            // The old service keeps serving while we copy, so there is no cold window
+            service.warmFrom(previous);
+        }
+        this.cacheService = service;
+        if (previous != null) {
+            retire(previous);
+        }
+
+        if (!adaptivePolicy) {
+            if (shadow != null) {
+                shadow.shutdown();
+                shadow = null;
+            }
+        } else if (shadow != null && shadow.matches(cap, shadowSampling)) {
+            // Keep the shadows warm across switches; only the live policy changed
+            shadow.setLive(policyOf(mode));
+        } else {
+            if (shadow != null) {
+                shadow.shutdown();
+            }
+            shadow = new ShadowPolicySelector(cap, shadowSampling, policyOf(mode), this::switchPolicy);
+        }
+    }
+
+    private HeavyHitterTracker newHotKeyTracker() {
+        return new HeavyHitterTracker(64, 16, 5_000, hotKeyRate);
+    }
+
+    // Optional per-cache stages as /config had them at one point in time
+    private static final class Stages {
+        final int l1Size;
+        final long l1TtlMillis;
+        final boolean pinHotKeys;
+        final boolean refreshHotKeys;
+        final int compressThreshold;
+        final double compressMaxRatio;
+        final boolean preSerialize;
+        final double ttlJitter;
+        final boolean limitLoads;
+        final long loadQueueMillis;
+        final boolean hedgedLoads;
+        final long deadlineMillis;
+        final double refreshAheadThreshold;
+        final boolean asyncEviction;
+        final double highWatermark;
+        final double lowWatermark;
+
+        Stages(CacheController c) {
+            l1Size = c.l1Size;
+            l1TtlMillis = c.l1TtlMillis;
+            pinHotKeys = c.pinHotKeys;
+            refreshHotKeys = c.refreshHotKeys;
+            compressThreshold = c.compressThreshold;
+            compressMaxRatio = c.compressMaxRatio;
+            preSerialize = c.preSerialize;
+            ttlJitter = c.ttlJitter;
+            limitLoads = c.maxLoads > 0;
+            loadQueueMillis = c.loadQueueMillis;
+            hedgedLoads = c.hedge || c.deadlineMillis > 0;
+            deadlineMillis = c.deadlineMillis;
+            refreshAheadThreshold = c.refreshAheadThreshold;
+            asyncEviction = c.asyncEviction;
+            highWatermark = c.highWatermark;
+            lowWatermark = c.lowWatermark;
+        }
+    }
+
+    // Fixes the namespace's stages now, so a later clear rebuilds it the way it was defined.
+    // The hot-key tracker is looked up per build to keep its history across clears and mode changes.
+    private NamespaceManager.ServiceBuilder namespaceBuilder(String name, String mode, long ttl) {
+        Stages stages = new Stages(this);
+        return cap -> buildService(mode, cap, ttl, namespaceHotKeys.computeIfAbsent(name, n -> newHotKeyTracker()), stages);
+    }
+
+    // One cache with the given optional stages plus the shared backend protections
+    private CacheService buildService(String mode, int cap, long ttl, HeavyHitterTracker hotKeys, Stages stages) {
         EvictionStrategy eviction = null;
         RefreshStrategy refresh = null;
 
         switch (mode) {
-            case "M0":
-                // No cache, handled in getItem
-                return;
             case "M1":
                 eviction = new LruEvictionStrategy();
                 refresh = new NaiveTtlRefreshStrategy();
                 break;
             case "M2":
                 eviction = new LruEvictionStrategy();
-                refresh = new CoalescingRefreshStrategy();
+                refresh = new CoalescingRefreshStrategy(sharedRefreshPool);
                 break;
             case "M3":
                 eviction = new LruEvictionStrategy();
-                refresh = new ProbabilisticEarlyRefreshStrategy();
+                refresh = new ProbabilisticEarlyRefreshStrategy(sharedRefreshPool);
                 break;
             case "M4":
                 eviction = new SieveEvictionStrategy();
@@ -105,12 +570,48 @@ public class CacheController {
                 break;
             case "M5":
                 eviction = new SieveEvictionStrategy();
-                refresh = new ProbabilisticEarlyRefreshStrategy();
+                refresh = new ProbabilisticEarlyRefreshStrategy(sharedRefreshPool);
+                break;
+            case "M6":
+                eviction = new SieveEvictionStrategy();
+                refresh = new CoalescingRefreshStrategy(sharedRefreshPool);
                 break;
             default:
                 throw new IllegalArgumentException("Unknown mode: " + mode);
         }
         
-        this.cacheService = new CacheService(eviction, refresh, cap, ttl);
+        if (stages.pinHotKeys) {
+            eviction = new PinningEvictionStrategy(eviction, hotKeys::isHot);
+        }
+
+        CacheService service = new CacheService(eviction, refresh, cap, ttl);
+        if (stages.l1Size > 0) {
+            service.setNearCache(new NearCache(stages.l1Size, stages.l1TtlMillis));
+        }
+        service.setPreSerialize(stages.preSerialize);
+        service.setTtlJitter(stages.ttlJitter);
+        if (stages.compressThreshold > 0) {
+            service.setValueCodec(new ValueCodec(stages.compressThreshold, stages.compressMaxRatio));
+        }
+        if (stages.limitLoads) {
+            service.setLoadLimiter(sharedLimiter, stages.loadQueueMillis);
+        }
+        if (stages.hedgedLoads) {
+            service.setHedgedLoader(sharedHedgedLoader, stages.deadlineMillis);
+        }
+        if (stages.refreshAheadThreshold > 0) {
+            service.enableRefreshAhead(stages.refreshAheadThreshold, sharedRefreshBudget);
+        }
+        service.setHotKeyTracker(hotKeys, stages.refreshHotKeys);
+        if (stages.asyncEviction) {
+            // Wraps whatever was built above, pinning included
+            service.enableBatchedEviction(stages.highWatermark, stages.lowWatermark);
+        }
+        return service;
+    }
+
+    // Requests that already picked up the old service may still be inside it; give them a moment
+    private static void retire(CacheService previous) {
+        CompletableFuture.delayedExecutor(RETIRE_GRACE_MILLIS, TimeUnit.MILLISECONDS).execute(previous::shutdown);
     }
 }
@@ -0,0 +1,13 @@
+package com.example.cache.backend;
+
+/**
+ * Simulated backend failure, injected by {@link MockBackend} at the configured error rate.
+ */
+public class BackendException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BackendException(String key) {
+        super("Backend error for key " + key);
+    }
+}
@@ -1,24 +1,161 @@
 package com.example.cache.backend;
 
+import com.example.cache.core.Loaded;
 import org.springframework.stereotype.Component;
 
+/**
+ * Stand-in for a database or downstream service.
+ *
+ * Models the things that make real backends fall over under a stampede:
+ * a latency distribution (fixed, lognormal, or bimodal with two lognormal peaks) plus an optional slow tail,
+ * a maximum number of concurrent calls with FIFO queueing behind it,
+ * service time that grows with the number of calls in flight, and random errors.
+ * It can also pick each value's TTL, the way a backend passing on Cache-Control max-age would.
+ */
 @Component
 public class MockBackend {
 
+    public enum Distribution { FIXED, LOGNORMAL, BIMODAL }
+
     private final java.util.concurrent.atomic.AtomicLong requestCount = new java.util.concurrent.atomic.AtomicLong();
-    private volatile long latencyMillis = 500;
+    private final java.util.concurrent.atomic.AtomicLong errorCount = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicInteger inFlight = new java.util.concurrent.atomic.AtomicInteger();
+    private volatile long latencyMillis = 500;  // fixed value, or the median for LOGNORMAL
+    private volatile int valueSizeBytes = 0; // 0 = short "value-for-key" strings
+
+    private volatile Distribution distribution = Distribution.FIXED;
+    private volatile double latencySigma = 0.5; // LOGNORMAL and BIMODAL spread
+    // This fraction of calls takes tailLatencyMillis instead; BIMODAL spreads it like the main peak
+    private volatile double tailRatio = 0.0;
+    private volatile long tailLatencyMillis = 0;
+
+    // Extra service time per other call in flight: 0.05 means 20 concurrent calls run ~2x slower
+    private volatile double loadFactor = 0.0;
+    private volatile double errorRate = 0.0;
+    // > 0: values come back as Loaded with this TTL instead of taking the cache's default
+    private volatile long valueTtlMillis = 0;
+    // null = unlimited concurrency; replaced (not resized) on reconfiguration
+    private volatile java.util.concurrent.Semaphore slots;
+    private volatile int maxConcurrency = 0;
 
     // Simulates a slow backend fetch
     public Object fetchFromBackend(String key) {
         requestCount.incrementAndGet();
+        java.util.concurrent.Semaphore permits = slots;
+        try {
+            if (permits != null) {
+                permits.acquire(); // queue behind the in-flight calls, like a connection pool
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackendException(key);
+        }
+        int concurrent = inFlight.incrementAndGet();
         try {
-            if (latencyMillis > 0) {
-                Thread.sleep(latencyMillis); 
+            long sleepMillis = sampleLatency();
+            if (loadFactor > 0) {
+                sleepMillis = (long) (sleepMillis * (1.0 + loadFactor * (concurrent - 1)));
+            }
+            if (sleepMillis > 0) {
+                Thread.sleep(sleepMillis); 
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            if (permits != null) {
+                permits.release();
+            }
         }
-        return "value-for-" + key;
+        if (errorRate > 0 && java.util.concurrent.ThreadLocalRandom.current().nextDouble() < errorRate) {
+            errorCount.incrementAndGet();
+            throw new BackendException(key);
+        }
+        Object value = valueSizeBytes > 0 ? buildJsonPayload(key, valueSizeBytes) : "value-for-" + key;
+        long ttl = valueTtlMillis;
+        return ttl > 0 ? new Loaded(value, ttl) : value;
+    }
+
+    long sampleLatency() {
+        java.util.concurrent.ThreadLocalRandom rand = java.util.concurrent.ThreadLocalRandom.current();
+        boolean tail = tailRatio > 0 && rand.nextDouble() < tailRatio;
+        switch (distribution) {
+            case BIMODAL:
+                // Two lognormal peaks, e.g. cache-warm vs. disk-bound reads on the backend
+                return (long) ((tail ? tailLatencyMillis : latencyMillis) * Math.exp(latencySigma * rand.nextGaussian()));
+            case LOGNORMAL:
+                return tail ? tailLatencyMillis : (long) (latencyMillis * Math.exp(latencySigma * rand.nextGaussian()));
+            default:
+                return tail ? tailLatencyMillis : latencyMillis;
+        }
+    }
+
+    // JSON-ish blob of roughly the requested size, repetitive like real API responses
+    private static String buildJsonPayload(String key, int sizeBytes) {
+        StringBuilder sb = new StringBuilder(sizeBytes + 64);
+        sb.append("{\"key\":\"").append(key).append("\",\"items\":[");
+        int i = 0;
+        while (sb.length() < sizeBytes) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":").append(i)
+              .append(",\"name\":\"").append(key).append("-item-").append(i)
+              .append("\",\"active\":").append(i % 3 != 0)
+              .append(",\"score\":").append((i * 31) % 997).append('}');
+            i++;
+        }
+        return sb.append("]}").toString();
+    }
+
+    public void setDistribution(Distribution distribution, double sigma) {
+        this.distribution = distribution;
+        this.latencySigma = sigma;
+    }
+
+    public void setTail(double ratio, long latencyMillis) {
+        this.tailRatio = ratio;
+        this.tailLatencyMillis = latencyMillis;
+    }
+
+    public void setLoadFactor(double loadFactor) {
+        this.loadFactor = loadFactor;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    // 0 = plain values, cached with the cache's own TTL
+    public void setValueTtlMillis(long ttlMillis) {
+        this.valueTtlMillis = ttlMillis;
+    }
+
+    // 0 = unlimited. Calls already holding a permit finish against the old limit.
+    public void setMaxConcurrency(int max) {
+        this.maxConcurrency = max;
+        this.slots = max > 0 ? new java.util.concurrent.Semaphore(max, true) : null;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueueDepth() {
+        java.util.concurrent.Semaphore permits = slots;
+        return permits != null ? permits.getQueueLength() : 0;
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setValueSizeBytes(int bytes) {
+        this.valueSizeBytes = bytes;
     }
 
     public void setLatencyMillis(long ms) {
@@ -31,5 +168,6 @@ public class MockBackend {
     
     public void resetCount() {
         requestCount.set(0);
+        errorCount.set(0);
     }
 }
@@ -0,0 +1,29 @@
+package com.example.cache.core;
+
+import org.slf4j.Logger;
+
+/**
+ * Wraps the periodic passes of the background workers (batched eviction, refresh-ahead, snapshots,
+ * policy and curve estimation, namespace rebalancing). A ScheduledExecutorService silently drops
+ * a task that throws, so one bad pass would otherwise end the schedule for good.
+ */
+public final class BackgroundPass {
+
+    public interface Pass {
+        void run() throws Exception;
+    }
+
+    private BackgroundPass() {
+    }
+
+    // Logs a failed pass to the owner's logger and lets the next one run
+    public static Runnable logFailures(Logger log, String name, Pass pass) {
+        return () -> {
+            try {
+                pass.run();
+            } catch (Exception e) {
+                log.warn("{} failed", name, e);
+            }
+        };
+    }
+}
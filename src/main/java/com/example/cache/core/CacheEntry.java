@@ -4,6 +4,7 @@ public class CacheEntry<V> {
     public V value;
     public long expiryTime;   // absolute timestamp in millis when TTL expires
     public long delta;        // backend computation time (nanos or millis), used by PER
+    public long ttlMillis;    // lifetime it was loaded with; 0 if unknown (restored from a snapshot)
     public volatile boolean visited; // used by SIEVE; defaults to false on insert
 
     public CacheEntry() {
@@ -15,4 +16,17 @@ public class CacheEntry<V> {
         this.delta = delta;
         this.visited = false;
     }
+
+    // Builds the entry for a freshly loaded value, honouring a loader-supplied TTL if there is one
+    public static CacheEntry<Object> fromLoad(Object loaded, long now, long defaultTtlMillis, long delta) {
+        Object value = loaded;
+        long ttlMillis = defaultTtlMillis;
+        if (loaded instanceof Loaded l) {
+            value = l.value;
+            ttlMillis = l.ttlMillis;
+        }
+        CacheEntry<Object> entry = new CacheEntry<>(value, now + ttlMillis, delta);
+        entry.ttlMillis = ttlMillis;
+        return entry;
+    }
 }
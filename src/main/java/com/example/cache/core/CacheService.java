@@ -1,18 +1,98 @@
 package com.example.cache.core;
 
+import com.example.cache.eviction.AsyncBatchedEvictionStrategy;
 import com.example.cache.eviction.EvictionStrategy;
+import com.example.cache.hedge.DeadlineExceededException;
+import com.example.cache.hedge.HedgedLoader;
+import com.example.cache.hotkeys.HeavyHitterTracker;
+import com.example.cache.limit.AdaptiveConcurrencyLimiter;
+import com.example.cache.limit.LoadShedException;
+import com.example.cache.refresh.RefreshAheadScheduler;
+import com.example.cache.refresh.RefreshBudget;
 import com.example.cache.refresh.RefreshStrategy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * One cache: a store, an eviction policy and a refresh strategy, plus the optional stages
+ * (batched eviction, near cache, codec, load limiting, hedging, refresh-ahead, hot keys).
+ *
+ * The enable/set methods and warmFrom must be called before the service starts taking traffic;
+ * everything else, resize included, is safe on a live service.
+ */
 public class CacheService {
 
+    private static final Logger log = LoggerFactory.getLogger(CacheService.class);
+
     private final ConcurrentHashMap<String, CacheEntry<Object>> store;
-    private final EvictionStrategy evictionStrategy;
+    private EvictionStrategy evictionStrategy;
     private final RefreshStrategy refreshStrategy;
-    private final int capacity;
+    private volatile int capacity;
+
+    // Capacity handed to the insert path; unbounded when a background task owns eviction
+    private volatile int insertCapacity;
+    private AsyncBatchedEvictionStrategy batchedEviction;
+    private double highWatermark;
+    private double lowWatermark;
     private final long ttlMillis;
 
+    // Optional L1 tier; null when disabled
+    private NearCache nearCache;
+
+    // Store values as ready-to-send response bytes + ETag instead of raw objects
+    private boolean preSerialize;
+
+    // Fraction of the TTL randomly shaved off each insert so bulk loads don't all expire together
+    private double ttlJitter;
+
+    // Optional compression stage between loader and store; null when disabled
+    private ValueCodec valueCodec;
+    private static final byte[] NO_BODY = new byte[0];
+    private final LongAdder notModified = new LongAdder(); // 304s answered without inflating
+
+    // Optional cap on concurrent backend loads; null when disabled
+    private AdaptiveConcurrencyLimiter loadLimiter;
+    private long loadQueueMillis;
+    private final LongAdder staleServed = new LongAdder();
+
+    // Optional deadline + hedged backend requests; null when disabled
+    private HedgedLoader hedgedLoader;
+    private long deadlineMillis;
+
+    // Optional frequency-driven background refresh; null when disabled
+    private RefreshAheadScheduler refreshAhead;
+
+    // Optional heavy-hitter tracking; null when disabled
+    private HeavyHitterTracker hotKeyTracker;
+    private ExecutorService hotKeyRefresher;
+    private final Set<String> hotKeyRefreshesInFlight = ConcurrentHashMap.newKeySet();
+    private final LongAdder hotKeyRefreshes = new LongAdder();
+
+    // Optional on-disk snapshot this service is restored from and written to; null when disabled
+    private CacheSnapshot snapshot;
+
+    // Entries carried over from the service this one replaced
+    private int handedOver;
+
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder l2Misses = new LongAdder();
+
     public CacheService(
         EvictionStrategy evictionStrategy,
         RefreshStrategy refreshStrategy,
@@ -23,26 +103,460 @@ public class CacheService {
         this.evictionStrategy = evictionStrategy;
         this.refreshStrategy = refreshStrategy;
         this.capacity = capacity;
+        this.insertCapacity = capacity;
         this.ttlMillis = ttlMillis;
     }
 
+    // Inserts only queue metadata; a maintenance thread evicts once the store passes
+    // highWatermark * capacity, down to lowWatermark * capacity.
+    public void enableBatchedEviction(double highWatermark, double lowWatermark) {
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.batchedEviction = new AsyncBatchedEvictionStrategy(evictionStrategy, store,
+            (int) (capacity * highWatermark), (int) (capacity * lowWatermark));
+        this.evictionStrategy = batchedEviction;
+        this.insertCapacity = Integer.MAX_VALUE;
+    }
+
+    public void setNearCache(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    public void setPreSerialize(boolean preSerialize) {
+        this.preSerialize = preSerialize;
+    }
+
+    public void setTtlJitter(double ttlJitter) {
+        this.ttlJitter = ttlJitter;
+    }
+
+    public void setValueCodec(ValueCodec valueCodec) {
+        this.valueCodec = valueCodec;
+    }
+
+    // When the limit is reached a load serves the stale value if there is one,
+    // otherwise it waits up to queueMillis for a slot before failing with LoadShedException.
+    public void setLoadLimiter(AdaptiveConcurrencyLimiter limiter, long queueMillis) {
+        this.loadLimiter = limiter;
+        this.loadQueueMillis = queueMillis;
+    }
+
+    // deadlineMillis bounds how long a request waits for a load (0 = no deadline);
+    // past it the stale value is returned if there is one.
+    public void setHedgedLoader(HedgedLoader hedgedLoader, long deadlineMillis) {
+        this.hedgedLoader = hedgedLoader;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    // Keys expected to see at least `threshold` requests while reloading are refreshed before they expire.
+    public void enableRefreshAhead(double threshold, RefreshBudget budget) {
+        this.refreshAhead = new RefreshAheadScheduler(store, (key, fetch) -> {
+            long start = System.nanoTime();
+            Object value = load(key, fetch, Long.MAX_VALUE);
+            long delta = System.nanoTime() - start;
+            insert(key, CacheEntry.fromLoad(value, System.currentTimeMillis(), ttlMillis, delta));
+        }, threshold, budget, capacity);
+    }
+
+    // With refreshAhead, detected hot keys are reloaded in the background before they expire.
+    public void setHotKeyTracker(HeavyHitterTracker tracker, boolean refreshAhead) {
+        this.hotKeyTracker = tracker;
+        if (refreshAhead) {
+            this.hotKeyRefresher = Executors.newFixedThreadPool(4);
+        }
+    }
+
+    // Copies previous's live entries into this store so a mode switch doesn't start cold. When capacity
+    // is short the hottest entries win; they are replayed coldest first so the new policy inherits the
+    // old order, and keys the old policy saw hit (or the heavy-hitter tracker calls hot) count as visited.
+    public int warmFrom(CacheService previous) {
+        List<String> keys = new ArrayList<>();
+        List<Boolean> visited = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        previous.evictionStrategy.exportOrder((key, v) -> {
+            if (seen.add(key)) {
+                keys.add(key);
+                visited.add(v);
+            }
+        });
+        // Anything the old policy didn't report (policies without an order, queued async events) goes last, as hottest
+        for (String key : previous.store.keySet()) {
+            if (seen.add(key)) {
+                keys.add(key);
+                visited.add(Boolean.FALSE);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        int copied = 0;
+        for (int i = Math.max(0, keys.size() - capacity); i < keys.size(); i++) {
+            String key = keys.get(i);
+            CacheEntry<Object> entry = previous.store.get(key);
+            // Values stored under a different codec/pre-serialize setting are left to reload
+            if (entry == null || entry.expiryTime <= now || !acceptsRestored(entry.value)) {
+                continue;
+            }
+            boolean hot = visited.get(i) || (hotKeyTracker != null && hotKeyTracker.isHot(key));
+            if (restore(key, entry, hot, false)) {
+                copied++;
+            }
+        }
+        handedOver = copied;
+        return copied;
+    }
+
+    // Called by CacheSnapshot.bind
+    void setSnapshot(CacheSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
     public Object get(String key, Supplier<Object> recomputeFn) throws Exception {
-        return refreshStrategy.get(key, recomputeFn, store, evictionStrategy, capacity, ttlMillis);
+        return get(key, k -> recomputeFn.get());
+    }
+
+    // Same as above for callers that reuse one loader for every key, so a hit allocates no closure
+    public Object get(String key, Function<String, Object> fetch) throws Exception {
+        return get(key, fetch, null);
+    }
+
+    /**
+     * Conditional get: if the stored value is compressed and its ETag matches ifNoneMatch, it is
+     * not inflated; the caller gets an empty EncodedBody with that ETag and can answer 304.
+     */
+    public Object get(String key, Function<String, Object> fetch, String ifNoneMatch) throws Exception {
+        long now = System.currentTimeMillis();
+        long deadlineNanos = deadlineMillis > 0 ? System.nanoTime() + deadlineMillis * 1_000_000 : Long.MAX_VALUE;
+        if (hotKeyTracker != null) {
+            hotKeyTracker.record(key);
+        }
+        if (refreshAhead != null) {
+            // Counted before L1 so the rate reflects all traffic, not just what reaches the store
+            refreshAhead.recordAccess(key, fetch);
+        }
+        if (nearCache != null) {
+            Object v = nearCache.get(key, now);
+            if (v != null) {
+                return v;
+            }
+        }
+
+        // Peek only to classify the request; the refresh strategy still does the real lookup
+        CacheEntry<Object> entry = store.get(key);
+        if (entry == null && snapshot != null) {
+            // Still warming up after a restart: take the snapshot copy over a backend call
+            snapshot.restoreOnDemand(key);
+            entry = store.get(key);
+        }
+        boolean l2Hit = entry != null && entry.expiryTime > now;
+        if (l2Hit) {
+            l2Hits.increment();
+        } else {
+            l2Misses.increment();
+        }
+
+        if (l2Hit && hotKeyRefresher != null) {
+            maybeRefreshHotKey(key, entry, fetch, now);
+        }
+
+        Object value;
+        try {
+            if (l2Hit && !refreshStrategy.loadsOnHit()) {
+                // Same as the strategy's own hit path, minus the loader closure
+                evictionStrategy.onHit(key, entry);
+                value = entry.value;
+            } else {
+                // Strategies only ever see the stored (possibly encoded and compressed) form
+                Supplier<Object> loader = () -> load(key, fetch, deadlineNanos);
+                value = refreshStrategy.get(key, loader, store, evictionStrategy, insertCapacity, ttlMillis, deadlineNanos);
+            }
+        } catch (Exception e) {
+            // Coalescing runs the loader on its own pool, so shed/deadline failures arrive wrapped
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            if (!(cause instanceof LoadShedException
+                || cause instanceof DeadlineExceededException
+                || cause instanceof TimeoutException)) {
+                // Surface the loader's own exception rather than the executor's wrapper
+                throw cause instanceof RuntimeException re ? re : e;
+            }
+            value = serveStale(key, (Exception) cause);
+        }
+        if (valueCodec != null) {
+            if (ifNoneMatch != null && value instanceof CompressedValue cv && cv.etag != null
+                && EncodedBody.matches(cv.etag, ifNoneMatch)) {
+                notModified.increment();
+                return new EncodedBody(NO_BODY, cv.etag, cv.contentType);
+            }
+            value = valueCodec.decode(value);
+        }
+
+        if (nearCache != null && l2Hit) {
+            nearCache.admit(key, value, entry.expiryTime, now);
+        }
+        return value;
+    }
+
+    // Runs the loader plus every insert-side stage; returns what the refresh strategy should store
+    private Object load(String key, Function<String, Object> fetch, long deadlineNanos) {
+        Supplier<Object> call = () -> fetch.apply(key);
+        if (loadLimiter != null) {
+            call = () -> limitedLoad(key, fetch, deadlineNanos);
+        }
+        if (hedgedLoader == null) {
+            return prepare(call.get());
+        }
+        long start = System.nanoTime();
+        try {
+            return prepare(hedgedLoader.load(key, call, deadlineNanos));
+        } catch (DeadlineExceededException e) {
+            // This caller gives up, but the load is still running: let its answer fill the cache
+            e.getPending().thenAccept(late -> insert(key,
+                CacheEntry.fromLoad(prepare(late), System.currentTimeMillis(), ttlMillis, System.nanoTime() - start)));
+            throw e;
+        }
+    }
+
+    private Object prepare(Object loaded) {
+        Object value = loaded;
+        long ttl = ttlMillis;
+        if (loaded instanceof Loaded l) {
+            value = l.value;
+            ttl = l.ttlMillis;
+        }
+        if (preSerialize) {
+            value = EncodedBody.of(value);
+        }
+        if (valueCodec != null) {
+            value = valueCodec.encode(value);
+        }
+        if (ttlJitter > 0) {
+            // Only ever shorten: a loader's TTL is an upper bound on staleness
+            ttl -= (long) (ttl * ttlJitter * ThreadLocalRandom.current().nextDouble());
+        }
+        if (ttl == ttlMillis) {
+            return value;
+        }
+        return new Loaded(value, ttl);
+    }
+
+    private Object limitedLoad(String key, Function<String, Object> fetch, long deadlineNanos) {
+        if (!loadLimiter.tryAcquire()) {
+            // Someone holds an expired copy: shed now and let get() hand that out
+            if (store.containsKey(key)) {
+                loadLimiter.recordShed();
+                throw new LoadShedException(key);
+            }
+            try {
+                long queueMillis = loadQueueMillis;
+                if (deadlineNanos != Long.MAX_VALUE) {
+                    queueMillis = Math.min(queueMillis, (deadlineNanos - System.nanoTime()) / 1_000_000);
+                }
+                if (!loadLimiter.acquire(queueMillis)) {
+                    throw new LoadShedException(key);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LoadShedException(key);
+            }
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object loaded = fetch.apply(key);
+            success = true;
+            return loaded;
+        } finally {
+            loadLimiter.release(System.nanoTime() - start, success);
+        }
+    }
+
+    private Object serveStale(String key, Exception cause) throws Exception {
+        CacheEntry<Object> stale = store.get(key);
+        if (stale == null) {
+            throw cause;
+        }
+        staleServed.increment();
+        return stale.value;
+    }
+
+    private void maybeRefreshHotKey(String key, CacheEntry<Object> entry, Function<String, Object> fetch, long now) {
+        // Refresh window: twice the last load time, but at least 10% of the TTL this entry was stored with
+        long entryTtl = entry.ttlMillis > 0 ? entry.ttlMillis : ttlMillis;
+        long windowMillis = Math.max(2 * entry.delta / 1_000_000, entryTtl / 10);
+        if (entry.expiryTime - now > windowMillis || !hotKeyTracker.isHot(key)) {
+            return;
+        }
+        if (!hotKeyRefreshesInFlight.add(key)) {
+            return; // someone is already reloading it
+        }
+        hotKeyRefresher.submit(() -> {
+            try {
+                long start = System.nanoTime();
+                Object value = load(key, fetch, Long.MAX_VALUE);
+                long delta = System.nanoTime() - start;
+                insert(key, CacheEntry.fromLoad(value, System.currentTimeMillis(), ttlMillis, delta));
+                hotKeyRefreshes.increment();
+            } catch (LoadShedException | DeadlineExceededException e) {
+                // Backend saturated or slow; the current value stays until it expires
+            } catch (Exception e) {
+                // Same as a failed load on the request path: keep serving the current value
+                log.warn("Hot key refresh failed for {}", key, e);
+            } finally {
+                hotKeyRefreshesInFlight.remove(key);
+            }
+        });
+    }
+
+    // Same insert sequence the refresh strategies use: make room, store, then tell the eviction policy
+    private void insert(String key, CacheEntry<Object> newEntry) {
+        if (store.size() >= insertCapacity) {
+            evictionStrategy
+                .selectVictim(store)
+                .ifPresent(victimKey -> store.remove(victimKey));
+        }
+        store.put(key, newEntry);
+        evictionStrategy.onInsert(key, newEntry);
     }
-    
+
+    // Puts a snapshot entry back. Background restores never evict; on-demand ones make room like a normal insert.
+    boolean restore(String key, CacheEntry<Object> entry, boolean visited, boolean evict) {
+        if (evict) {
+            if (store.size() >= insertCapacity) {
+                evictionStrategy
+                    .selectVictim(store)
+                    .ifPresent(victimKey -> store.remove(victimKey));
+            }
+        } else if (store.size() >= capacity) {
+            return false;
+        }
+        if (store.putIfAbsent(key, entry) != null) {
+            return false; // a fresh load got there first
+        }
+        evictionStrategy.onInsert(key, entry);
+        if (visited) {
+            evictionStrategy.onHit(key, entry);
+        }
+        return true;
+    }
+
+    // A snapshot taken under a different config may hold values in a form this service can't serve
+    boolean acceptsRestored(Object value) {
+        if (value instanceof CompressedValue cv) {
+            return valueCodec != null && (cv.etag != null) == preSerialize;
+        }
+        if (value instanceof EncodedBody) {
+            return preSerialize;
+        }
+        return !preSerialize;
+    }
+
+    ConcurrentHashMap<String, CacheEntry<Object>> store() {
+        return store;
+    }
+
+    EvictionStrategy evictionStrategy() {
+        return evictionStrategy;
+    }
+
+    // Changes capacity on a live service; shrinking evicts down to the new size right away
+    public void resize(int newCapacity) {
+        this.capacity = newCapacity;
+        if (refreshAhead != null) {
+            refreshAhead.setMaxTracked(newCapacity);
+        }
+        if (batchedEviction != null) {
+            // The maintenance thread does the trimming
+            batchedEviction.setWatermarks((int) (newCapacity * highWatermark), (int) (newCapacity * lowWatermark));
+            return;
+        }
+        this.insertCapacity = newCapacity;
+        while (store.size() > newCapacity) {
+            Optional<String> victim = evictionStrategy.selectVictim(store);
+            if (victim.isEmpty()) {
+                break;
+            }
+            store.remove(victim.get());
+        }
+    }
+
     // Helper to inspect store size for metrics if needed
     public int size() {
         return store.size();
     }
-    
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hits = l2Hits.sum();
+        long misses = l2Misses.sum();
+        if (nearCache != null) {
+            long l1Hits = nearCache.getHits();
+            long l1Misses = nearCache.getMisses();
+            stats.put("l1Slots", nearCache.slotCount());
+            stats.put("l1Hits", l1Hits);
+            stats.put("l1Misses", l1Misses);
+            stats.put("l1HitRatio", ratio(l1Hits, l1Hits + l1Misses));
+        }
+        stats.put("l2Hits", hits);
+        stats.put("l2Misses", misses);
+        stats.put("l2HitRatio", ratio(hits, hits + misses));
+        if (handedOver > 0) {
+            stats.put("handedOverEntries", handedOver);
+        }
+        if (hotKeyRefresher != null) {
+            stats.put("hotKeyRefreshes", hotKeyRefreshes.sum());
+        }
+        if (valueCodec != null) {
+            stats.putAll(valueCodec.stats());
+            stats.put("compressionNotModifiedSkips", notModified.sum());
+        }
+        if (loadLimiter != null) {
+            stats.putAll(loadLimiter.stats());
+        }
+        if (hedgedLoader != null) {
+            stats.putAll(hedgedLoader.stats());
+        }
+        if (refreshAhead != null) {
+            stats.putAll(refreshAhead.stats());
+        }
+        if (batchedEviction != null) {
+            stats.putAll(batchedEviction.stats());
+        }
+        if (loadLimiter != null || hedgedLoader != null) {
+            stats.put("staleServed", staleServed.sum());
+        }
+        return stats;
+    }
+
+    // Stops background work owned by this service; called when the controller replaces it.
+    // Pools are shut down gracefully, so loads already queued still finish. The load limiter,
+    // hedged loader and refresh budget may be shared with other services and are left running.
+    public void shutdown() {
+        if (refreshAhead != null) {
+            refreshAhead.shutdown();
+        }
+        if (batchedEviction != null) {
+            batchedEviction.shutdown();
+        }
+        if (hotKeyRefresher != null) {
+            hotKeyRefresher.shutdown();
+        }
+        refreshStrategy.shutdown();
+    }
+
     // Clear cache for experiments
     public void clear() {
         store.clear();
+        if (nearCache != null) {
+            nearCache.clear();
+        }
         // NOTE: Strategy-specific metadata (queue, order) also needs clearing if we reuse the same instance?
-        // Ideally we recreate the service or strategy for new experiments. 
-        // For now, assume strategies are fresh or we trust them to handle empty store? 
+        // Ideally we recreate the service or strategy for new experiments.
+        // For now, assume strategies are fresh or we trust them to handle empty store?
         // LRU order/queue won't be cleared automatically if we just clear store.
-        // We might need a clear() method on EvictionStrategy too, but instructions didn't specify. 
+        // We might need a clear() method on EvictionStrategy too, but instructions didn't specify.
         // We will recreate the strategies in the controller when switching modes.
     }
+
+    private static double ratio(long part, long total) {
+        return total == 0 ? 0.0 : (double) part / total;
+    }
 }
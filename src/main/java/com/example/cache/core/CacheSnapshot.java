@@ -0,0 +1,470 @@
+package com.example.cache.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodic on-disk snapshot of the cache so a restart doesn't begin with an empty store.
+ *
+ * Values live in an append-only, memory-mapped data file ({@code data-<generation>}). Each pass
+ * walks the eviction order (next victim first) and appends only entries whose CacheEntry changed
+ * since the last pass, then atomically replaces a small {@code index} file listing every live key
+ * with its record offset, expiry and visited bit. Once dead records make up more than half of the
+ * data file, the next pass starts a new generation and the old file is deleted.
+ * All of this runs on one background thread; request threads are never blocked by it.
+ *
+ * On startup the index is read and the previous data file is mapped read-only. A background
+ * thread replays entries coldest first (onInsert, plus onHit if visited) so the policy's order
+ * survives, without ever evicting. A request for a key that hasn't been replayed yet restores
+ * it on the spot instead of going to the backend. Expired entries are skipped.
+ */
+public class CacheSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheSnapshot.class);
+
+    private static final int MAGIC = 0x43534e50; // "CSNP"
+    private static final int HEADER_BYTES = 16;  // magic, generation, reserved
+    private static final long INITIAL_MAP_BYTES = 1 << 20;
+    private static final long MIN_COMPACT_BYTES = 4 << 20;
+
+    private static final byte STRING = 1;
+    private static final byte BYTES = 2;
+    private static final byte ENCODED = 3;
+    private static final byte COMPRESSED = 4;
+
+    private static class Written {
+        final CacheEntry<Object> entry;
+        final long offset;
+        final int length;
+
+        Written(CacheEntry<Object> entry, long offset, int length) {
+            this.entry = entry;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static class IndexEntry {
+        final String key;
+        final long offset;
+        final long expiryTime;
+        final boolean visited;
+
+        IndexEntry(String key, long offset, long expiryTime, boolean visited) {
+            this.key = key;
+            this.offset = offset;
+            this.expiryTime = expiryTime;
+            this.visited = visited;
+        }
+    }
+
+    private final Path dir;
+    private volatile CacheService target;
+
+    // Writer state; only touched by the snapshot thread
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, Written> written = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int generation;
+    private long writePos;
+    private long liveBytes;
+    private int obsoleteGeneration = -1;
+
+    // Restore state
+    private final ConcurrentHashMap<String, IndexEntry> pending = new ConcurrentHashMap<>();
+    private volatile boolean restoring;
+    private ByteBuffer restoreSource;
+    private List<IndexEntry> restoreOrder = List.of();
+    private int restoreGeneration = -1;
+
+    private final LongAdder passes = new LongAdder();
+    private final LongAdder recordsWritten = new LongAdder();
+    private final LongAdder restored = new LongAdder();
+    private final LongAdder restoredOnDemand = new LongAdder();
+    private final LongAdder restoreSkipped = new LongAdder();
+    private volatile long lastPassMicros;
+    private volatile int lastIndexedKeys;
+
+    public CacheSnapshot(Path dir, long intervalMillis) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        loadIndex();
+        // Never append to the generation we are restoring from
+        openGeneration(restoreGeneration + 1);
+        writer.scheduleWithFixedDelay(BackgroundPass.logFailures(log, "Cache snapshot pass", this::snapshot), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Points snapshots (and any pending restore) at the live service; called on every mode switch
+    public void bind(CacheService service) {
+        bind(service, true);
+    }
+
+    // Without the background replay, entries only come back on demand
+    void bind(CacheService service, boolean restoreInBackground) {
+        service.setSnapshot(this);
+        boolean first = target == null;
+        target = service;
+        if (first && restoring && restoreInBackground) {
+            Thread t = new Thread(this::restoreAll, "snapshot-restore");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    // Request path: called on a store miss before going to the backend
+    void restoreOnDemand(String key) {
+        if (!restoring) {
+            return;
+        }
+        IndexEntry ie = pending.remove(key);
+        if (ie != null && restoreEntry(ie, true)) {
+            restoredOnDemand.increment();
+        }
+    }
+
+    private void restoreAll() {
+        for (IndexEntry ie : restoreOrder) {
+            // Whoever removes it from pending owns the restore, so on-demand and background never race
+            if (pending.remove(ie.key) != null && restoreEntry(ie, false)) {
+                restored.increment();
+            }
+        }
+        pending.clear();
+        restoring = false;
+        restoreOrder = List.of();
+    }
+
+    private boolean restoreEntry(IndexEntry ie, boolean onDemand) {
+        CacheService service = target;
+        if (service == null || ie.expiryTime <= System.currentTimeMillis()) {
+            restoreSkipped.increment();
+            return false;
+        }
+        CacheEntry<Object> entry;
+        try {
+            entry = readRecord(restoreSource, ie.offset);
+        } catch (RuntimeException e) {
+            // Truncated or corrupt record: just load it from the backend like a cold start would
+            restoreSkipped.increment();
+            return false;
+        }
+        if (!service.acceptsRestored(entry.value) || !service.restore(ie.key, entry, ie.visited, onDemand)) {
+            restoreSkipped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // Snapshot thread only (or close() and tests, while the schedule isn't running)
+    void snapshot() throws IOException {
+        CacheService service = target;
+        if (service == null || restoring) {
+            // Mid-restore the store is incomplete; keep the old index until everything is back
+            return;
+        }
+        long start = System.nanoTime();
+        if (writePos > MIN_COMPACT_BYTES && writePos > 2 * liveBytes) {
+            obsoleteGeneration = generation;
+            openGeneration(generation + 1);
+        }
+
+        ConcurrentHashMap<String, CacheEntry<Object>> store = service.store();
+        long now = System.currentTimeMillis();
+        List<IndexEntry> index = new ArrayList<>(store.size());
+        Set<String> seen = new HashSet<>();
+        service.evictionStrategy().exportOrder((key, visited) -> {
+            if (seen.add(key)) {
+                addToIndex(index, key, store.get(key), visited, now);
+            }
+        });
+        // Keys the policy hasn't heard about yet (e.g. queued async eviction events) go last, as hottest
+        for (Map.Entry<String, CacheEntry<Object>> e : store.entrySet()) {
+            if (seen.add(e.getKey())) {
+                addToIndex(index, e.getKey(), e.getValue(), false, now);
+            }
+        }
+        written.keySet().retainAll(seen);
+        liveBytes = 0;
+        for (Written w : written.values()) {
+            liveBytes += w.length;
+        }
+
+        // Data must be on disk before an index points at it
+        map.force();
+        writeIndex(index);
+        if (obsoleteGeneration >= 0 && obsoleteGeneration != restoreGeneration) {
+            Files.deleteIfExists(dataFile(obsoleteGeneration));
+            obsoleteGeneration = -1;
+        }
+        if (!restoring && restoreGeneration >= 0) {
+            // The restore is done and the new index no longer references the old file
+            restoreSource = null;
+            Files.deleteIfExists(dataFile(restoreGeneration));
+            restoreGeneration = -1;
+        }
+        passes.increment();
+        lastIndexedKeys = index.size();
+        lastPassMicros = (System.nanoTime() - start) / 1_000;
+    }
+
+    private void addToIndex(List<IndexEntry> index, String key, CacheEntry<Object> entry, boolean visited, long now) {
+        if (entry == null || entry.expiryTime <= now) {
+            return;
+        }
+        Written w = written.get(key);
+        if (w == null || w.entry != entry) {
+            long offset = writePos;
+            try {
+                if (!appendRecord(key, entry)) {
+                    return; // value type we don't know how to persist
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            w = new Written(entry, offset, (int) (writePos - offset));
+            written.put(key, w);
+            recordsWritten.increment();
+        }
+        index.add(new IndexEntry(key, w.offset, entry.expiryTime, visited));
+    }
+
+    // Writes the entry at writePos and advances it; false if the value can't be persisted
+    private boolean appendRecord(String key, CacheEntry<Object> entry) throws IOException {
+        Object v = entry.value;
+        byte type;
+        byte[] data;
+        String etag = null;
+        String contentType = null;
+        int originalLength = 0;
+        boolean string = false;
+        if (v instanceof String s) {
+            type = STRING;
+            data = s.getBytes(StandardCharsets.UTF_8);
+        } else if (v instanceof byte[] b) {
+            type = BYTES;
+            data = b;
+        } else if (v instanceof EncodedBody eb) {
+            type = ENCODED;
+            data = eb.body;
+            etag = eb.etag;
+            contentType = eb.contentType;
+        } else if (v instanceof CompressedValue cv) {
+            type = COMPRESSED;
+            data = cv.data;
+            etag = cv.etag;
+            contentType = cv.contentType;
+            originalLength = cv.originalLength;
+            string = cv.string;
+        } else {
+            return false;
+        }
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        byte[] e = etag == null ? null : etag.getBytes(StandardCharsets.UTF_8);
+        byte[] c = contentType == null ? null : contentType.getBytes(StandardCharsets.UTF_8);
+        int length = 4 + k.length + 8 + 8 + 1 + 1 + 4
+            + 4 + (e == null ? 0 : e.length)
+            + 4 + (c == null ? 0 : c.length)
+            + 4 + data.length;
+        ensureCapacity(length);
+        map.position((int) writePos);
+        putBytes(k);
+        map.putLong(entry.expiryTime);
+        map.putLong(entry.delta);
+        map.put(type);
+        map.put((byte) (string ? 1 : 0));
+        map.putInt(originalLength);
+        putBytes(e);
+        putBytes(c);
+        putBytes(data);
+        writePos += length;
+        return true;
+    }
+
+    private void putBytes(byte[] b) {
+        if (b == null) {
+            map.putInt(-1);
+            return;
+        }
+        map.putInt(b.length);
+        map.put(b);
+    }
+
+    private static CacheEntry<Object> readRecord(ByteBuffer source, long offset) {
+        // Duplicate so concurrent on-demand readers each get their own position
+        ByteBuffer r = source.duplicate();
+        r.position((int) offset);
+        String key = utf8(getBytes(r));
+        long expiryTime = r.getLong();
+        long delta = r.getLong();
+        byte type = r.get();
+        boolean string = r.get() != 0;
+        int originalLength = r.getInt();
+        String etag = utf8(getBytes(r));
+        String contentType = utf8(getBytes(r));
+        byte[] data = getBytes(r);
+        Object value = switch (type) {
+            case STRING -> utf8(data);
+            case BYTES -> data;
+            case ENCODED -> new EncodedBody(data, etag, contentType);
+            case COMPRESSED -> new CompressedValue(data, originalLength, string, etag, contentType);
+            default -> throw new IllegalStateException("Unknown snapshot record type " + type + " for " + key);
+        };
+        return new CacheEntry<>(value, expiryTime, delta);
+    }
+
+    private static byte[] getBytes(ByteBuffer r) {
+        int len = r.getInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] b = new byte[len];
+        r.get(b);
+        return b;
+    }
+
+    private static String utf8(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+
+    private void openGeneration(int gen) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(dataFile(gen),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_MAP_BYTES);
+        map.putInt(0, MAGIC);
+        map.putInt(4, gen);
+        generation = gen;
+        writePos = HEADER_BYTES;
+        liveBytes = 0;
+        written.clear();
+    }
+
+    private void ensureCapacity(int length) throws IOException {
+        if (writePos + length <= map.capacity()) {
+            return;
+        }
+        long size = map.capacity();
+        while (size < writePos + length) {
+            size *= 2;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot data file would exceed 2GB");
+        }
+        map.force();
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void writeIndex(List<IndexEntry> index) throws IOException {
+        Path tmp = dir.resolve("index.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(generation);
+            out.writeInt(index.size());
+            for (IndexEntry ie : index) {
+                out.writeUTF(ie.key);
+                out.writeLong(ie.offset);
+                out.writeLong(ie.expiryTime);
+                out.writeBoolean(ie.visited);
+            }
+        }
+        Files.move(tmp, dir.resolve("index"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void loadIndex() {
+        Path indexFile = dir.resolve("index");
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            int gen = in.readInt();
+            int count = in.readInt();
+            List<IndexEntry> order = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                IndexEntry ie = new IndexEntry(in.readUTF(), in.readLong(), in.readLong(), in.readBoolean());
+                order.add(ie);
+                pending.put(ie.key, ie);
+            }
+            try (FileChannel ch = FileChannel.open(dataFile(gen), StandardOpenOption.READ)) {
+                // The mapping stays valid after the channel is closed
+                restoreSource = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+            if (restoreSource.getInt(0) != MAGIC) {
+                pending.clear();
+                return;
+            }
+            restoreGeneration = gen;
+            restoreOrder = order;
+            restoring = !order.isEmpty();
+        } catch (IOException e) {
+            // Unreadable snapshot: start cold rather than refusing to start
+            log.warn("Ignoring cache snapshot in {}: {}", dir, e.getMessage());
+            pending.clear();
+        }
+    }
+
+    private Path dataFile(int gen) {
+        return dir.resolve("data-" + gen);
+    }
+
+    // Stops the schedule and writes one final snapshot, so a clean shutdown loses nothing
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+            snapshot();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted before the final cache snapshot");
+        } catch (IOException e) {
+            log.warn("Final cache snapshot failed", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("snapshotPasses", passes.sum());
+        stats.put("snapshotKeys", lastIndexedKeys);
+        stats.put("snapshotRecordsWritten", recordsWritten.sum());
+        stats.put("snapshotLastPassMicros", lastPassMicros);
+        stats.put("snapshotRestored", restored.sum());
+        stats.put("snapshotRestoredOnDemand", restoredOnDemand.sum());
+        stats.put("snapshotRestoreSkipped", restoreSkipped.sum());
+        stats.put("snapshotRestorePending", pending.size());
+        stats.put("snapshotRestoring", restoring);
+        return stats;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.cache.core;
+
+/**
+ * A cached value stored in deflated form by {@link ValueCodec}.
+ * Remembers the original type so reads hand back exactly what the loader returned.
+ */
+public class CompressedValue {
+    public final byte[] data;
+    public final int originalLength;
+    public final boolean string; // true if the original value was a String (UTF-8), false for byte[]
+
+    // Set only when the original was an EncodedBody; the inflated bytes are wrapped back into one
+    public final String etag;
+    public final String contentType;
+
+    public CompressedValue(byte[] data, int originalLength, boolean string) {
+        this(data, originalLength, string, null, null);
+    }
+
+    public CompressedValue(byte[] data, int originalLength, boolean string, String etag, String contentType) {
+        this.data = data;
+        this.originalLength = originalLength;
+        this.string = string;
+        this.etag = etag;
+        this.contentType = contentType;
+    }
+}
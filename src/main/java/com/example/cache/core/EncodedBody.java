@@ -0,0 +1,103 @@
+package com.example.cache.core;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A cached value stored as the exact bytes /item sends back, plus a content hash used as ETag.
+ *
+ * Encoding and hashing happen once per load instead of once per hit, so a hit is just
+ * a byte[] copy to the socket, and a client that already has the value gets a 304 with no body.
+ */
+public class EncodedBody {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public final byte[] body;
+    public final String etag;        // strong ETag, already quoted
+    public final String contentType;
+
+    public EncodedBody(byte[] body, String etag, String contentType) {
+        this.body = body;
+        this.etag = etag;
+        this.contentType = contentType;
+    }
+
+    // Mirrors what Spring MVC would have written for the raw value
+    public static EncodedBody of(Object value) {
+        if (value instanceof EncodedBody eb) {
+            return eb;
+        }
+        byte[] body;
+        String contentType;
+        if (value instanceof String s) {
+            body = s.getBytes(StandardCharsets.UTF_8);
+            contentType = "text/plain;charset=UTF-8";
+        } else if (value instanceof byte[] b) {
+            body = b;
+            contentType = "application/octet-stream";
+        } else {
+            try {
+                body = MAPPER.writeValueAsBytes(value);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialize cached value", e);
+            }
+            contentType = "application/json";
+        }
+        return new EncodedBody(body, etagFor(body), contentType);
+    }
+
+    /**
+     * True if an If-None-Match header value covers this body.
+     * Handles lists, "*" and weak validators (weak comparison is what RFC 9110 asks for here).
+     */
+    public boolean matches(String ifNoneMatch) {
+        return matches(etag, ifNoneMatch);
+    }
+
+    // Same check for an ETag kept outside an EncodedBody, e.g. on a CompressedValue
+    public static boolean matches(String etag, String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String etagFor(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            // 128 bits is plenty to tell versions of one key apart
+            char[] out = new char[34];
+            out[0] = '"';
+            for (int i = 0; i < 16; i++) {
+                out[1 + 2 * i] = HEX[(digest[i] >> 4) & 0xf];
+                out[2 + 2 * i] = HEX[digest[i] & 0xf];
+            }
+            out[33] = '"';
+            return new String(out);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.cache.core;
+
+/**
+ * What a loader returns when it wants to pick the TTL for its own value.
+ * A plain (non-Loaded) return value gets the cache's default TTL.
+ */
+public class Loaded {
+    public final Object value;
+    public final long ttlMillis;
+
+    public Loaded(Object value, long ttlMillis) {
+        this.value = value;
+        this.ttlMillis = ttlMillis;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.cache.core;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small direct-mapped L1 tier that sits in front of the main store.
+ *
+ * Each key hashes to exactly one slot; a newer key simply overwrites whatever was there.
+ * Hits here never touch the eviction strategy, the refresh strategy or any lock,
+ * so the handful of hottest keys are served for the cost of one array read.
+ * Entries live for a short TTL (capped at the L2 expiry) so staleness stays bounded.
+ */
+public class NearCache {
+
+    // Immutable, so a racy read of a slot can never observe a half-written entry
+    private static final class Slot {
+        final String key;
+        final Object value;
+        final long expiryTime;
+
+        Slot(String key, Object value, long expiryTime) {
+            this.key = key;
+            this.value = value;
+            this.expiryTime = expiryTime;
+        }
+    }
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    private final long ttlMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public NearCache(int size, long ttlMillis) {
+        // Round up to a power of two so the slot index is a mask instead of a modulo
+        int n = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(n);
+        this.mask = n - 1;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public Object get(String key, long now) {
+        Slot slot = slots.get(indexFor(key));
+        if (slot != null && slot.expiryTime > now && slot.key.equals(key)) {
+            hits.increment();
+            return slot.value;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Admits a value that was just served as an L2 hit.
+     * Only L2 hits are admitted: a key must have been seen at least twice,
+     * which keeps one-hit-wonders and scan traffic out of the tiny L1.
+     */
+    public void admit(String key, Object value, long entryExpiryTime, long now) {
+        if (value == null) {
+            return;
+        }
+        long expiry = Math.min(now + ttlMillis, entryExpiryTime);
+        if (expiry <= now) {
+            return;
+        }
+        slots.lazySet(indexFor(key), new Slot(key, value, expiry));
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+
+    public int slotCount() {
+        return slots.length();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private int indexFor(String key) {
+        int h = key.hashCode();
+        // Spread high bits down, same as HashMap, so similar keys don't collide on the low bits
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.cache.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Transparent compression stage between the loader and the store.
+ *
+ * Values (String, byte[] or the body of an EncodedBody) at or above {@code thresholdBytes} are deflated on insert and
+ * inflated on read. If deflate doesn't shrink the value to at most {@code maxRatio} of its
+ * original size we keep it as-is: paying inflate on every hit for a few percent of heap isn't worth it.
+ * Deflater/Inflater hold native memory, so each thread reuses its own instances.
+ */
+public class ValueCodec {
+
+    private static final ThreadLocal<Deflater> DEFLATER =
+        ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private final int thresholdBytes;
+    private final double maxRatio;
+
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder skippedPoorRatio = new LongAdder();
+    private final LongAdder bytesBefore = new LongAdder();
+    private final LongAdder bytesAfter = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressed = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    public ValueCodec(int thresholdBytes, double maxRatio) {
+        this.thresholdBytes = thresholdBytes;
+        this.maxRatio = maxRatio;
+    }
+
+    public Object encode(Object value) {
+        byte[] raw;
+        boolean isString = false;
+        EncodedBody encoded = null;
+        if (value instanceof EncodedBody eb) {
+            raw = eb.body;
+            encoded = eb;
+        } else if (value instanceof String s) {
+            // Cheap pre-check: UTF-8 is never shorter than the char count for our payloads
+            if (s.length() < thresholdBytes) {
+                return value;
+            }
+            raw = s.getBytes(StandardCharsets.UTF_8);
+            isString = true;
+        } else if (value instanceof byte[] b) {
+            raw = b;
+        } else {
+            return value;
+        }
+        if (raw.length < thresholdBytes) {
+            return value;
+        }
+
+        long start = System.nanoTime();
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        // Anything bigger than maxRatio gets rejected anyway, so never allocate more than that
+        int limit = (int) (raw.length * maxRatio);
+        byte[] out = new byte[limit + 1];
+        int len = 0;
+        while (!deflater.finished() && len < out.length) {
+            len += deflater.deflate(out, len, out.length - len);
+        }
+        boolean fits = deflater.finished() && len <= limit;
+        compressNanos.add(System.nanoTime() - start);
+
+        if (!fits) {
+            skippedPoorRatio.increment();
+            return value;
+        }
+        compressed.increment();
+        bytesBefore.add(raw.length);
+        bytesAfter.add(len);
+        byte[] data = Arrays.copyOf(out, len);
+        if (encoded != null) {
+            return new CompressedValue(data, raw.length, false, encoded.etag, encoded.contentType);
+        }
+        return new CompressedValue(data, raw.length, isString);
+    }
+
+    public Object decode(Object stored) {
+        if (!(stored instanceof CompressedValue cv)) {
+            return stored;
+        }
+        long start = System.nanoTime();
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(cv.data);
+        byte[] raw = new byte[cv.originalLength];
+        try {
+            int len = 0;
+            while (len < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, len, raw.length - len);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    // All the input is already set, so another round would make no progress either
+                    throw new IllegalStateException("Truncated compressed cache value");
+                }
+                len += n;
+            }
+            if (len < raw.length) {
+                throw new IllegalStateException("Compressed cache value shorter than its recorded length");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed cache value", e);
+        }
+        decompressed.increment();
+        decompressNanos.add(System.nanoTime() - start);
+        if (cv.etag != null) {
+            return new EncodedBody(raw, cv.etag, cv.contentType);
+        }
+        return cv.string ? new String(raw, StandardCharsets.UTF_8) : raw;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long before = bytesBefore.sum();
+        long after = bytesAfter.sum();
+        long c = compressed.sum();
+        long attempts = c + skippedPoorRatio.sum();
+        long d = decompressed.sum();
+        stats.put("compressionThresholdBytes", thresholdBytes);
+        stats.put("compressedValues", c);
+        stats.put("compressionSkippedPoorRatio", skippedPoorRatio.sum());
+        stats.put("compressionRatio", after == 0 ? 0.0 : (double) before / after);
+        stats.put("compressionAvgMicros", attempts == 0 ? 0.0 : compressNanos.sum() / 1_000.0 / attempts);
+        stats.put("decompressionAvgMicros", d == 0 ? 0.0 : decompressNanos.sum() / 1_000.0 / d);
+        return stats;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.cache.eviction;
+
+import com.example.cache.core.BackgroundPass;
+import com.example.cache.core.CacheEntry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decorator that moves all eviction work off the request path.
+ *
+ * Request threads only append hit/insert events to a queue; they never take the delegate's lock,
+ * run the SIEVE hand sweep or unlink LRU nodes. A single maintenance thread replays the events
+ * into the delegate and, once the store grows past the high watermark, evicts in one batch
+ * down to the low watermark. The store may briefly overshoot capacity between passes.
+ *
+ * Hit events are lossy: if the queue backs up we drop hits (recency info is a hint) but never inserts.
+ * Instead, an insert that finds the queue full wakes the maintenance thread and waits for it to
+ * drain, so a write burst is slowed down to the speed of eviction rather than growing the queue
+ * without limit. The writer still only queues; the pass itself stays on the maintenance thread.
+ */
+public class AsyncBatchedEvictionStrategy implements EvictionStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncBatchedEvictionStrategy.class);
+
+    private static final long MAINTENANCE_INTERVAL_MILLIS = 20;
+    private static final int MAX_PENDING_EVENTS = 64 * 1024;
+    private static final long MAX_STALL_MILLIS = 1_000; // then queue anyway, e.g. after shutdown
+
+    private static final class Event {
+        final String key;
+        final CacheEntry<?> entry;
+        final boolean insert;
+
+        Event(String key, CacheEntry<?> entry, boolean insert) {
+            this.key = key;
+            this.entry = entry;
+            this.insert = insert;
+        }
+    }
+
+    private final EvictionStrategy delegate;
+    private final ConcurrentHashMap<String, CacheEntry<Object>> store;
+    private volatile int highWatermark;
+    private volatile int lowWatermark;
+
+    private final ConcurrentLinkedQueue<Event> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor();
+    private final Runnable pass = BackgroundPass.logFailures(log, "Batched eviction pass", this::maintain);
+    // Writers stalled on a full queue wait here; every drain signals it
+    private final ReentrantLock spaceLock = new ReentrantLock();
+    private final Condition space = spaceLock.newCondition();
+    private final AtomicInteger stalledWriters = new AtomicInteger();
+
+    private final LongAdder droppedHits = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder stalledInserts = new LongAdder();
+    private volatile int largestBatch;
+
+    public AsyncBatchedEvictionStrategy(
+        EvictionStrategy delegate,
+        ConcurrentHashMap<String, CacheEntry<Object>> store,
+        int highWatermark,
+        int lowWatermark
+    ) {
+        this.delegate = delegate;
+        this.store = store;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        maintenance.scheduleWithFixedDelay(pass, MAINTENANCE_INTERVAL_MILLIS,
+            MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onHit(String key, CacheEntry<?> entry) {
+        if (pending.get() >= MAX_PENDING_EVENTS) {
+            droppedHits.increment();
+            return;
+        }
+        pending.incrementAndGet();
+        events.add(new Event(key, entry, false));
+    }
+
+    @Override
+    public void onMiss(String key) {
+        // no-op, same as the wrapped strategies
+    }
+
+    @Override
+    public void onInsert(String key, CacheEntry<?> entry) {
+        if (pending.incrementAndGet() > MAX_PENDING_EVENTS) {
+            awaitSpace();
+        }
+        events.add(new Event(key, entry, true));
+        // Don't wait for the next tick once we're over the high watermark
+        if (store.size() > highWatermark) {
+            requestPass();
+        }
+    }
+
+    // Backpressure: park the writer until the maintenance thread has drained below the bound
+    private void awaitSpace() {
+        stalledInserts.increment();
+        stalledWriters.incrementAndGet();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_STALL_MILLIS);
+        spaceLock.lock();
+        try {
+            requestPass();
+            while (pending.get() > MAX_PENDING_EVENTS) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0 || maintenance.isShutdown()) {
+                    break;
+                }
+                space.awaitNanos(left);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            spaceLock.unlock();
+            stalledWriters.decrementAndGet();
+        }
+    }
+
+    private void requestPass() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                maintenance.execute(pass);
+            } catch (RejectedExecutionException e) {
+                // Shut down; nothing left to drain
+            }
+        }
+    }
+
+    /**
+     * Only the maintenance thread evicts in this mode; the store's owner passes an unbounded
+     * capacity to the refresh strategies so they never call this from a request thread.
+     */
+    @Override
+    public Optional<String> selectVictim(ConcurrentHashMap<String, CacheEntry<Object>> store) {
+        return Optional.empty();
+    }
+
+    // Events still queued are not reflected; close enough for a snapshot
+    @Override
+    public void exportOrder(BiConsumer<String, Boolean> action) {
+        delegate.exportOrder(action);
+    }
+
+    private void maintain() {
+        drainScheduled.set(false);
+        drainEvents();
+        if (store.size() <= highWatermark) {
+            return;
+        }
+        int batch = 0;
+        // Bounded so a delegate that keeps returning already-removed keys can't spin forever
+        int budget = store.size() * 2;
+        while (store.size() > lowWatermark && budget-- > 0) {
+            Optional<String> victim = delegate.selectVictim(store);
+            if (victim.isEmpty()) {
+                break;
+            }
+            if (store.remove(victim.get()) != null) {
+                batch++;
+            }
+        }
+        batches.increment();
+        evicted.add(batch);
+        largestBatch = Math.max(largestBatch, batch);
+    }
+
+    private void drainEvents() {
+        Event e;
+        while ((e = events.poll()) != null) {
+            pending.decrementAndGet();
+            if (e.insert) {
+                delegate.onInsert(e.key, e.entry);
+            } else {
+                delegate.onHit(e.key, e.entry);
+            }
+        }
+        if (stalledWriters.get() > 0) {
+            spaceLock.lock();
+            try {
+                space.signalAll();
+            } finally {
+                spaceLock.unlock();
+            }
+        }
+    }
+
+    // Capacity changed on a live cache; the next pass evicts down to the new low watermark
+    public void setWatermarks(int highWatermark, int lowWatermark) {
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+    }
+
+    public void shutdown() {
+        maintenance.shutdownNow();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("evictionHighWatermark", highWatermark);
+        stats.put("evictionLowWatermark", lowWatermark);
+        stats.put("evictionPendingEvents", pending.get());
+        stats.put("evictionDroppedHits", droppedHits.sum());
+        stats.put("evictionBatches", batches.sum());
+        stats.put("evictionBatchedVictims", evicted.sum());
+        stats.put("evictionLargestBatch", largestBatch);
+        stats.put("evictionStalledInserts", stalledInserts.sum());
+        return stats;
+    }
+}
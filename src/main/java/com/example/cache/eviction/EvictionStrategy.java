@@ -3,10 +3,16 @@ package com.example.cache.eviction;
 import com.example.cache.core.CacheEntry;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 public interface EvictionStrategy {
     void onHit(String key, CacheEntry<?> entry);
     void onMiss(String key);
     void onInsert(String key, CacheEntry<?> entry);
     Optional<String> selectVictim(ConcurrentHashMap<String, CacheEntry<Object>> store);
+
+    // Reports tracked keys next-victim first, with their visited bit, so the order can be rebuilt
+    // by replaying onInsert (+ onHit if visited). Policies without an order report nothing.
+    default void exportOrder(BiConsumer<String, Boolean> action) {
+    }
 }
@@ -1,28 +1,52 @@
 package com.example.cache.eviction;
 
 import com.example.cache.core.CacheEntry;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 
 public class LruEvictionStrategy implements EvictionStrategy {
 
+    // Keys copied per lock hold in exportOrder, so a snapshot never stalls the request path for long
+    static final int EXPORT_CHUNK = 1024;
+
+    private static class Node {
+        final String key;
+        Node older;
+        Node newer;
+
+        Node(String key) {
+            this.key = key;
+        }
+    }
+
     private final ReentrantLock lock = new ReentrantLock();
+    // One export at a time: exportCursor belongs to it
+    private final Condition exportFinished = lock.newCondition();
+    private boolean exporting;
 
-    // LinkedHashMap in access-order mode: accessOrder = true
-    private final LinkedHashMap<String, Boolean> order =
-        new LinkedHashMap<>(16, 0.75f, true);
+    // Recency list, eldest first; a hit or insert moves the key to the newest end
+    private final Map<String, Node> nodes = new HashMap<>();
+    private Node eldest;
+    private Node newest;
+
+    // Next node exportOrder will copy; moved on when that node is unlinked
+    private Node exportCursor;
 
     @Override
     public void onHit(String key, CacheEntry<?> entry) {
         lock.lock();
         try {
-            // access-order LinkedHashMap moves key to end on get/put
-            if (order.containsKey(key)) {
-                order.get(key); // touch it to update recency
+            Node node = nodes.get(key);
+            if (node != null && node != newest) {
+                unlink(node);
+                append(node);
             }
         } finally {
             lock.unlock();
@@ -33,7 +57,16 @@ public class LruEvictionStrategy implements EvictionStrategy {
     public void onInsert(String key, CacheEntry<?> entry) {
         lock.lock();
         try {
-            order.put(key, Boolean.TRUE);
+            Node node = nodes.get(key);
+            if (node == null) {
+                node = new Node(key);
+                nodes.put(key, node);
+            } else if (node == newest) {
+                return;
+            } else {
+                unlink(node);
+            }
+            append(node);
         } finally {
             lock.unlock();
         }
@@ -48,21 +81,103 @@ public class LruEvictionStrategy implements EvictionStrategy {
     public Optional<String> selectVictim(ConcurrentHashMap<String, CacheEntry<Object>> store) {
         lock.lock();
         try {
-            Iterator<Map.Entry<String, Boolean>> it = order.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<String, Boolean> e = it.next();
-                String candidateKey = e.getKey();
+            while (eldest != null) {
+                Node candidate = eldest;
+                unlink(candidate);
+                nodes.remove(candidate.key);
                 // candidate may already be removed from store
-                if (!store.containsKey(candidateKey)) {
-                    it.remove();
-                    continue;
+                if (store.containsKey(candidate.key)) {
+                    return Optional.of(candidate.key);
                 }
-                it.remove(); // remove from order
-                return Optional.of(candidateKey);
             }
             return Optional.empty();
         } finally {
             lock.unlock();
         }
     }
+
+    /**
+     * Eldest first, copied EXPORT_CHUNK keys per lock hold. Keys hit while the export runs move
+     * to the newest end and may be reported twice; callers keep the first report.
+     */
+    @Override
+    public void exportOrder(BiConsumer<String, Boolean> action) {
+        List<String> chunk = new ArrayList<>(EXPORT_CHUNK);
+        int budget;
+        lock.lock();
+        try {
+            while (exporting) {
+                exportFinished.awaitUninterruptibly();
+            }
+            exporting = true;
+            exportCursor = eldest;
+            // Keys re-reported after a hit, plus new inserts; stops a busy cache from exporting forever
+            budget = 2 * nodes.size() + EXPORT_CHUNK;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            while (budget > 0) {
+                chunk.clear();
+                lock.lock();
+                try {
+                    Node n = exportCursor;
+                    while (n != null && chunk.size() < EXPORT_CHUNK) {
+                        chunk.add(n.key);
+                        n = n.newer;
+                    }
+                    exportCursor = n;
+                } finally {
+                    lock.unlock();
+                }
+                for (String key : chunk) {
+                    action.accept(key, Boolean.FALSE);
+                }
+                budget -= chunk.size();
+                if (chunk.size() < EXPORT_CHUNK) {
+                    break;
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                exportCursor = null;
+                exporting = false;
+                exportFinished.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // --- Recency list, lock held ---
+
+    private void append(Node node) {
+        node.older = newest;
+        node.newer = null;
+        if (newest != null) {
+            newest.newer = node;
+        } else {
+            eldest = node;
+        }
+        newest = node;
+    }
+
+    private void unlink(Node node) {
+        if (node == exportCursor) {
+            exportCursor = node.newer;
+        }
+        if (node.older != null) {
+            node.older.newer = node.newer;
+        } else {
+            eldest = node.newer;
+        }
+        if (node.newer != null) {
+            node.newer.older = node.older;
+        } else {
+            newest = node.older;
+        }
+        node.older = null;
+        node.newer = null;
+    }
 }
@@ -0,0 +1,65 @@
+package com.example.cache.eviction;
+
+import com.example.cache.core.CacheEntry;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Decorator that keeps pinned keys (e.g. detected heavy hitters) out of eviction.
+ *
+ * Works with any EvictionStrategy: when the delegate picks a pinned key we hand it straight
+ * back (re-insert + hit, so SIEVE sees it as visited and LRU as most recent) and ask again.
+ * Attempts are bounded so a cache full of pinned keys still makes progress.
+ */
+public class PinningEvictionStrategy implements EvictionStrategy {
+
+    private static final int MAX_ATTEMPTS = 16;
+
+    private final EvictionStrategy delegate;
+    private final Predicate<String> isPinned;
+
+    public PinningEvictionStrategy(EvictionStrategy delegate, Predicate<String> isPinned) {
+        this.delegate = delegate;
+        this.isPinned = isPinned;
+    }
+
+    @Override
+    public void onHit(String key, CacheEntry<?> entry) {
+        delegate.onHit(key, entry);
+    }
+
+    @Override
+    public void onMiss(String key) {
+        delegate.onMiss(key);
+    }
+
+    @Override
+    public void onInsert(String key, CacheEntry<?> entry) {
+        delegate.onInsert(key, entry);
+    }
+
+    @Override
+    public void exportOrder(BiConsumer<String, Boolean> action) {
+        delegate.exportOrder(action);
+    }
+
+    @Override
+    public Optional<String> selectVictim(ConcurrentHashMap<String, CacheEntry<Object>> store) {
+        Optional<String> victim = delegate.selectVictim(store);
+        for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+            if (victim.isEmpty() || !isPinned.test(victim.get())) {
+                return victim;
+            }
+            // Pinned: give it back to the delegate as a fresh, recently used entry
+            String key = victim.get();
+            CacheEntry<Object> entry = store.get(key);
+            delegate.onInsert(key, entry);
+            delegate.onHit(key, entry);
+            victim = delegate.selectVictim(store);
+        }
+        // Everything we looked at was pinned; evict anyway rather than overflow capacity
+        return victim;
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.cache.eviction;
 
 import com.example.cache.core.CacheEntry;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 
 /**
  * SIEVE Eviction Strategy.
@@ -18,6 +22,9 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class SieveEvictionStrategy implements EvictionStrategy {
 
+    // Keys copied per lock hold in exportOrder
+    static final int EXPORT_CHUNK = 1024;
+
     private static class Node {
         String key;
         boolean visited; // Accessed bit
@@ -31,7 +38,10 @@ public class SieveEvictionStrategy implements EvictionStrategy {
     }
 
     private final ReentrantLock lock = new ReentrantLock();
-    
+    // One export at a time: the cursor and anchor below belong to it
+    private final Condition exportFinished = lock.newCondition();
+    private boolean exporting;
+
     // Key -> Node map for O(1) access
     private final Map<String, Node> nodeMap = new HashMap<>();
     
@@ -42,6 +52,11 @@ public class SieveEvictionStrategy implements EvictionStrategy {
     // The "Hand" pointer for the SIEVE algorithm
     private Node hand;
 
+    // Next node exportOrder will copy, and the node it started from (where it stops after wrapping);
+    // both move on towards the head when their node is removed
+    private Node exportCursor;
+    private Node exportStart;
+
     @Override
     public void onHit(String key, CacheEntry<?> entry) {
         // SIEVE: distinct from LRU, we DO NOT move the Node on a hit.
@@ -122,6 +137,74 @@ public class SieveEvictionStrategy implements EvictionStrategy {
         }
     }
 
+    /**
+     * Hand to head, then tail back to the hand: the order the sweep will visit them. Copied
+     * EXPORT_CHUNK keys per lock hold, so a snapshot never stalls the request path.
+     */
+    @Override
+    public void exportOrder(BiConsumer<String, Boolean> action) {
+        List<String> keys = new ArrayList<>(EXPORT_CHUNK);
+        List<Boolean> visited = new ArrayList<>(EXPORT_CHUNK);
+        int budget;
+        lock.lock();
+        try {
+            while (exporting) {
+                exportFinished.awaitUninterruptibly();
+            }
+            exporting = true;
+            exportStart = (hand != null) ? hand : tail;
+            exportCursor = exportStart;
+            budget = 2 * nodeMap.size() + EXPORT_CHUNK; // new inserts can't keep it going forever
+        } finally {
+            lock.unlock();
+        }
+        try {
+            boolean wrapped = false;
+            while (budget > 0) {
+                keys.clear();
+                visited.clear();
+                boolean done = false;
+                lock.lock();
+                try {
+                    Node n = exportCursor;
+                    while (keys.size() < EXPORT_CHUNK) {
+                        if (n == null && !wrapped) {
+                            wrapped = true;
+                            n = tail;
+                        }
+                        if (n == null || (wrapped && n == exportStart)) {
+                            done = true;
+                            break;
+                        }
+                        keys.add(n.key);
+                        visited.add(n.visited);
+                        n = n.prev;
+                    }
+                    exportCursor = n;
+                } finally {
+                    lock.unlock();
+                }
+                for (int i = 0; i < keys.size(); i++) {
+                    action.accept(keys.get(i), visited.get(i));
+                }
+                budget -= keys.size();
+                if (done) {
+                    break;
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                exportCursor = null;
+                exportStart = null;
+                exporting = false;
+                exportFinished.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
     // --- Helper Methods (Doubly Linked List Operations) ---
 
     private void addToHead(Node node) {
@@ -151,5 +234,12 @@ public class SieveEvictionStrategy implements EvictionStrategy {
         if (node == hand) {
             hand = (node.prev != null) ? node.prev : tail;
         }
+        if (node == exportCursor) {
+            exportCursor = node.prev;
+        }
+        // The new anchor is reported before the wrap, so the second pass still stops short of repeats
+        if (node == exportStart) {
+            exportStart = node.prev;
+        }
     }
 }
@@ -0,0 +1,23 @@
+package com.example.cache.hedge;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Thrown when a backend load doesn't finish before the request's deadline.
+ * Carries the still-running load so the caller can put its result in the cache when it lands.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient CompletableFuture<Object> pending;
+
+    public DeadlineExceededException(String key, CompletableFuture<Object> pending) {
+        super("Deadline exceeded loading key " + key);
+        this.pending = pending;
+    }
+
+    public CompletableFuture<Object> getPending() {
+        return pending;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.cache.hotkeys;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Streaming heavy-hitter detection using the Space-Saving algorithm
+ * (Metwally et al., "Efficient Computation of Frequent and Top-k Elements in Data Streams").
+ *
+ * Memory is fixed at {@code maxCounters} entries no matter how many distinct keys we see.
+ * Only 1 in {@code sampleRate} requests touches the counters, so the get path normally pays
+ * for a single random number. Counts are halved at every window boundary so the tracker
+ * follows shifts in popularity instead of remembering yesterday's viral key forever.
+ * Windows roll on record, topK and isHot, so a key that stops getting traffic stops being hot
+ * even if nothing else is recorded.
+ */
+public class HeavyHitterTracker {
+
+    private static class Counter {
+        final String key;
+        long count;
+        long error; // Space-Saving overestimation bound inherited from the replaced counter
+
+        Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    public static class HotKey {
+        public final String key;
+        public final double estimatedRate; // requests per second
+        public final long count;
+        public final long error;
+
+        HotKey(String key, double estimatedRate, long count, long error) {
+            this.key = key;
+            this.estimatedRate = estimatedRate;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final int maxCounters;
+    private final int sampleRate;
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private volatile long windowStart;
+
+    private volatile double hotRateThreshold;
+    // Recomputed at each window boundary; read without locking on the get path
+    private volatile Set<String> hotKeys = Collections.emptySet();
+
+    public HeavyHitterTracker(int maxCounters, int sampleRate, long windowMillis, double hotRateThreshold) {
+        this(maxCounters, sampleRate, windowMillis, hotRateThreshold, System::currentTimeMillis);
+    }
+
+    // Tests drive the clock
+    HeavyHitterTracker(int maxCounters, int sampleRate, long windowMillis, double hotRateThreshold, LongSupplier clock) {
+        this.maxCounters = maxCounters;
+        this.sampleRate = sampleRate;
+        this.windowMillis = windowMillis;
+        this.hotRateThreshold = hotRateThreshold;
+        this.clock = clock;
+        this.windowStart = clock.getAsLong();
+    }
+
+    public void record(String key) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            rollWindowIfNeeded(clock.getAsLong());
+            Counter c = counters.get(key);
+            if (c != null) {
+                c.count++;
+                return;
+            }
+            if (counters.size() < maxCounters) {
+                counters.put(key, new Counter(key, 1, 0));
+                return;
+            }
+            // Space-Saving: the new key takes over the smallest counter and inherits its count as error
+            Counter min = null;
+            for (Counter candidate : counters.values()) {
+                if (min == null || candidate.count < min.count) {
+                    min = candidate;
+                }
+            }
+            counters.remove(min.key);
+            counters.put(key, new Counter(key, min.count + 1, min.count));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isHot(String key) {
+        long now = clock.getAsLong();
+        // Never block the caller on the lock; whoever holds it is rolling or recording anyway
+        if (now - windowStart >= windowMillis && lock.tryLock()) {
+            try {
+                rollWindowIfNeeded(now);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return hotKeys.contains(key);
+    }
+
+    public void setHotRateThreshold(double hotRateThreshold) {
+        this.hotRateThreshold = hotRateThreshold;
+    }
+
+    public List<HotKey> topK(int k) {
+        lock.lock();
+        try {
+            rollWindowIfNeeded(clock.getAsLong());
+            List<Counter> sorted = new ArrayList<>(counters.values());
+            sorted.sort((a, b) -> Long.compare(b.count, a.count));
+            List<HotKey> result = new ArrayList<>(Math.min(k, sorted.size()));
+            for (int i = 0; i < sorted.size() && i < k; i++) {
+                Counter c = sorted.get(i);
+                result.add(new HotKey(c.key, estimateRate(c.count), c.count, c.error));
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            counters.clear();
+            hotKeys = Collections.emptySet();
+            windowStart = clock.getAsLong();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller must hold the lock
+    private void rollWindowIfNeeded(long now) {
+        long elapsed = now - windowStart;
+        if (elapsed < windowMillis) {
+            return;
+        }
+        windowStart = now;
+        // Windows that passed with no roll still count: nothing was recorded in them
+        int idleWindows = (int) Math.min(62, elapsed / windowMillis - 1);
+
+        Set<String> nextHot = new HashSet<>();
+        Iterator<Counter> it = counters.values().iterator();
+        while (it.hasNext()) {
+            Counter c = it.next();
+            c.count >>= idleWindows;
+            c.error >>= idleWindows;
+            if (estimateRate(c.count) >= hotRateThreshold) {
+                nextHot.add(c.key);
+            }
+            // Exponential decay: halve everything so old popularity fades out
+            c.count >>= 1;
+            c.error >>= 1;
+            if (c.count == 0) {
+                it.remove();
+            }
+        }
+        hotKeys = Set.copyOf(nextHot);
+    }
+
+    private double estimateRate(long count) {
+        // With halving every window the steady-state count is about 2 windows' worth of samples
+        return count * (double) sampleRate / (2.0 * windowMillis / 1000.0);
+    }
+}
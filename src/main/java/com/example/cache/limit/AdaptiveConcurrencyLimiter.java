@@ -0,0 +1,91 @@
+package com.example.cache.limit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * AIMD concurrency limit for backend loads, driven by observed load latency.
+ *
+ * Every completed load is compared against the best latency seen recently. If it's within
+ * {@code tolerance} of that baseline the limit creeps up by 1/limit (about +1 per round trip);
+ * if it's slower, or the load failed, the limit is cut multiplicatively. So when the backend
+ * starts queueing internally, we stop piling more work on it instead of waiting for timeouts.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double TOLERANCE = 2.0;
+    private static final double BACKOFF = 0.9;
+    // Baseline drifts up 1% per sample so a permanent latency shift is eventually accepted
+    private static final double BASELINE_DRIFT = 1.01;
+
+    private final int minLimit;
+    private int maxLimit;
+
+    private double limit;
+    private int inFlight;
+    private int peakInFlight;
+    private double baselineNanos = Double.MAX_VALUE;
+    private long shed;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    // The limiter is shared by every cache in front of the backend, so /config retunes it in place
+    public synchronized void setMaxLimit(int maxLimit) {
+        this.maxLimit = Math.max(minLimit, maxLimit);
+        limit = Math.min(limit, this.maxLimit);
+        notifyAll();
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        peakInFlight = Math.max(peakInFlight, inFlight);
+        return true;
+    }
+
+    // Waits up to timeoutMillis for a slot; false (and counted as shed) if none freed up
+    public synchronized boolean acquire(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (inFlight >= (int) limit) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                shed++;
+                return false;
+            }
+            wait(remaining);
+        }
+        inFlight++;
+        peakInFlight = Math.max(peakInFlight, inFlight);
+        return true;
+    }
+
+    public synchronized void recordShed() {
+        shed++;
+    }
+
+    public synchronized void release(long latencyNanos, boolean success) {
+        inFlight--;
+        baselineNanos = Math.min(latencyNanos, baselineNanos * BASELINE_DRIFT);
+        if (!success || latencyNanos > baselineNanos * TOLERANCE) {
+            limit = Math.max(minLimit, limit * BACKOFF);
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        notifyAll();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loadLimit", (int) limit);
+        stats.put("loadsInFlight", inFlight);
+        stats.put("peakLoadsInFlight", peakInFlight);
+        stats.put("loadsShed", shed);
+        return stats;
+    }
+}
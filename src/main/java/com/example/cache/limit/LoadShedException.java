@@ -0,0 +1,14 @@
+package com.example.cache.limit;
+
+/**
+ * Thrown when a backend load is refused because the concurrency limit is reached.
+ * Unchecked so it can travel through the {@code Supplier} loaders the strategies call.
+ */
+public class LoadShedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public LoadShedException(String key) {
+        super("Backend load shed for key " + key);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.cache.loadgen;
+
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Polls /stats once per second and writes backend QPS and the L2 hit ratio to a CSV, for plotting
+ * expiry waves (run alongside Scenario C with and without ttlJitter) or the dip across a /config
+ * mode switch (with handover=true vs handover=false).
+ * Usage: java BackendQpsSampler <durationSeconds> <output.csv>
+ * Example: java BackendQpsSampler 1800 backend_qps_jitter.csv
+ */
+public class BackendQpsSampler {
+
+    private static final Pattern BACKEND_REQUESTS = Pattern.compile("\"backendRequests\":(\\d+)");
+    private static final Pattern L2_HITS = Pattern.compile("\"l2Hits\":(\\d+)");
+    private static final Pattern L2_MISSES = Pattern.compile("\"l2Misses\":(\\d+)");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: BackendQpsSampler <durationSeconds> <output.csv>");
+            return;
+        }
+        int duration = Integer.parseInt(args[0]);
+        String output = args[1];
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(URI.create("http://localhost:8080/stats"))
+            .GET()
+            .build();
+
+        try (PrintWriter out = new PrintWriter(output)) {
+            out.println("second,backendQps,hitRatio");
+            long previous = -1;
+            long previousHits = 0;
+            long previousMisses = 0;
+            long start = System.currentTimeMillis();
+            for (int second = 0; second <= duration; second++) {
+                String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+                Matcher m = BACKEND_REQUESTS.matcher(body);
+                if (m.find()) {
+                    long count = Long.parseLong(m.group(1));
+                    long hits = extract(L2_HITS, body);
+                    long misses = extract(L2_MISSES, body);
+                    // A mode switch replaces the service and restarts its counters
+                    if (hits < previousHits || misses < previousMisses) {
+                        previousHits = 0;
+                        previousMisses = 0;
+                    }
+                    long dh = hits - previousHits;
+                    long dm = misses - previousMisses;
+                    if (previous >= 0) {
+                        double hitRatio = dh + dm == 0 ? 0.0 : (double) dh / (dh + dm);
+                        out.println(second + "," + (count - previous) + "," + String.format("%.4f", hitRatio));
+                        out.flush();
+                    }
+                    previous = count;
+                    previousHits = hits;
+                    previousMisses = misses;
+                }
+                // Sleep to the next whole second so samples don't drift
+                long next = start + (second + 1) * 1000L;
+                Thread.sleep(Math.max(0, next - System.currentTimeMillis()));
+            }
+        }
+        System.out.println("Wrote " + output);
+    }
+
+    private static long extract(Pattern p, String body) {
+        Matcher m = p.matcher(body);
+        return m.find() ? Long.parseLong(m.group(1)) : 0;
+    }
+}
@@ -52,7 +52,8 @@ public class LoadGenerator {
                 int cTotalKeys = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
                 int cHotKeys = args.length > 4 ? Integer.parseInt(args[4]) : 1_000;
                 double cHotRatio = args.length > 5 ? Double.parseDouble(args[5]) : 0.8;
-                runScenarioC(duration, cThreads, cTotalKeys, cHotKeys, cHotRatio);
+                boolean cConditional = args.length > 6 && Boolean.parseBoolean(args[6]);
+                runScenarioC(duration, cThreads, cTotalKeys, cHotKeys, cHotRatio, cConditional);
                 break;
             case "D":
                 runScenarioD(duration);
@@ -159,17 +160,23 @@ public class LoadGenerator {
     }
 
     // Scenario C: Mixed Workload (Pareto/Hot-Cold)
-    private static void runScenarioC(int durationSeconds, int threads, int totalKeys, int hotKeys, double hotRatio) throws Exception {
+    // With conditional=true each client remembers ETags and revalidates with If-None-Match,
+    // like a browser or CDN would; 304s and bytes received are reported at the end.
+    private static void runScenarioC(int durationSeconds, int threads, int totalKeys, int hotKeys, double hotRatio,
+                                     boolean conditional) throws Exception {
         
         ExecutorService executor = Executors.newFixedThreadPool(threads);
         AtomicLong requestCount = new AtomicLong();
+        AtomicLong notModified = new AtomicLong();
+        AtomicLong bytesReceived = new AtomicLong();
         long endTime = System.currentTimeMillis() + durationSeconds * 1000L;
         
-        System.out.println(String.format("Initializing Scenario C (Threads=%d, TotalKeys=%d, HotKeys=%d, HotRatio=%.2f)...", threads, totalKeys, hotKeys, hotRatio));
+        System.out.println(String.format("Initializing Scenario C (Threads=%d, TotalKeys=%d, HotKeys=%d, HotRatio=%.2f, Conditional=%b)...", threads, totalKeys, hotKeys, hotRatio, conditional));
 
         for (int i = 0; i < threads; i++) {
             executor.submit(() -> {
                 Random rand = new Random();
+                java.util.Map<String, String> etags = new java.util.HashMap<>();
                 while (System.currentTimeMillis() < endTime) {
                     String key;
                     if (rand.nextDouble() < hotRatio) {
@@ -178,7 +185,16 @@ public class LoadGenerator {
                         key = "key-" + (hotKeys + rand.nextInt(totalKeys - hotKeys));
                     }
                     try {
-                        sendGet(key);
+                        if (conditional) {
+                            HttpResponse<byte[]> response = sendConditionalGet(key, etags.get(key));
+                            if (response.statusCode() == 304) {
+                                notModified.incrementAndGet();
+                            }
+                            response.headers().firstValue("ETag").ifPresent(tag -> etags.put(key, tag));
+                            bytesReceived.addAndGet(response.body().length);
+                        } else {
+                            sendGet(key);
+                        }
                         requestCount.incrementAndGet();
                         // Removed Thread.sleep to maximize throughput / stress
                     } catch (Exception e) {
@@ -191,6 +207,10 @@ public class LoadGenerator {
         executor.shutdown();
         executor.awaitTermination(durationSeconds + 10, TimeUnit.SECONDS);
         System.out.println("Scenario C finished. Requests: " + requestCount.get());
+        if (conditional) {
+            System.out.println(String.format("Conditional: 304s=%d (%.1f%%), BodyBytes=%d",
+                notModified.get(), 100.0 * notModified.get() / Math.max(1, requestCount.get()), bytesReceived.get()));
+        }
     }
 
     private static void sendGet(String key) throws Exception {
@@ -201,6 +221,16 @@ public class LoadGenerator {
         client.send(request, HttpResponse.BodyHandlers.discarding());
     }
 
+    private static HttpResponse<byte[]> sendConditionalGet(String key, String etag) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+            .uri(URI.create(BASE_URL + "/item?key=" + key))
+            .GET();
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
     // Scenario D: Scan Resistance (LRU vs SIEVE)
     private static void runScenarioD(int durationSeconds) throws Exception {
         int threads = 50; 
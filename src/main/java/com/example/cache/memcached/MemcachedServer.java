@@ -0,0 +1,507 @@
+package com.example.cache.memcached;
+
+import com.example.cache.api.CacheController;
+import com.example.cache.core.EncodedBody;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Second listener speaking the memcached text protocol (get / gets / version / quit),
+ * served straight from the same cache as /item without going through Spring MVC.
+ *
+ * One selector thread does all accepts and reads. Once a connection has a complete command line
+ * it stops reading and hands the connection to a worker, because a miss may block on the backend.
+ * The worker parses, looks up, writes the reply into the connection's reusable output buffer and
+ * re-arms the selector. Buffers are allocated once per connection and only ever grow, key Strings
+ * are reused across requests for the same key, and String values are UTF-8 encoded straight
+ * into the output buffer.
+ *
+ * Off by default: set {@code cache.memcached.port} (e.g. 11211) to enable it. It listens on
+ * {@code cache.memcached.host} (default 127.0.0.1) since the protocol has no authentication.
+ */
+@Component
+public class MemcachedServer {
+
+    private static final Logger log = LoggerFactory.getLogger(MemcachedServer.class);
+
+    private static final int MAX_LINE = 8 * 1024;
+    private static final int KEY_CACHE_SIZE = 256; // per connection, power of two
+    private static final byte[] END = "END\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VALUE = "VALUE ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR = "ERROR\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VERSION = "VERSION caching-middleware\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final CacheController cache;
+    private final String host;
+    private final int port;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    public MemcachedServer(
+        CacheController cache,
+        @Value("${cache.memcached.host:127.0.0.1}") String host,
+        @Value("${cache.memcached.port:0}") int port
+    ) {
+        this.cache = cache;
+        this.host = host;
+        this.port = port;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (port <= 0) {
+            return;
+        }
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(host, port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            closeQuietly();
+            // Don't take the HTTP side down just because the port is taken
+            log.warn("Memcached listener disabled, cannot bind {}:{}: {}", host, port, e.getMessage());
+            return;
+        }
+        // Lookups block on backend misses; this many lets a burst of misses overlap
+        workers = Executors.newFixedThreadPool(64);
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "memcached-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        workers.shutdownNow();
+        workers.awaitTermination(1, TimeUnit.SECONDS);
+        // The selector's key set is only safe to walk once its thread is gone
+        selectorThread.join(1_000);
+        serverChannel.close();
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (IOException ignored) {
+            // nothing was listening yet
+        }
+    }
+
+    private void selectLoop() {
+        while (running) {
+            try {
+                selector.select();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        ((Connection) key.attachment()).onReadable();
+                    } else if (key.isWritable()) {
+                        ((Connection) key.attachment()).onWritable();
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Memcached selector pass failed", e);
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch = serverChannel.accept();
+        if (ch == null) {
+            return;
+        }
+        ch.configureBlocking(false);
+        ch.socket().setTcpNoDelay(true);
+        SelectionKey key = ch.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(ch, key));
+    }
+
+    private class Connection {
+        final SocketChannel ch;
+        final SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocateDirect(MAX_LINE);
+        ByteBuffer out = ByteBuffer.allocateDirect(16 * 1024);
+        final String[] keyCache = new String[KEY_CACHE_SIZE];
+        boolean closeAfterWrite;
+
+        Connection(SocketChannel ch, SelectionKey key) {
+            this.ch = ch;
+            this.key = key;
+        }
+
+        // Selector thread
+        void onReadable() {
+            try {
+                if (ch.read(in) < 0) {
+                    close();
+                    return;
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (hasCompleteLine()) {
+                // Stop reading until the worker has answered; keeps replies in request order
+                key.interestOps(0);
+                workers.execute(this::process);
+            } else if (!in.hasRemaining()) {
+                closeAfterWrite = true;
+                key.interestOps(0);
+                workers.execute(() -> {
+                    out.clear();
+                    put("CLIENT_ERROR line too long\r\n");
+                    flush();
+                });
+            }
+        }
+
+        // Selector thread
+        void onWritable() {
+            try {
+                ch.write(out);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (!out.hasRemaining()) {
+                afterWrite();
+            }
+        }
+
+        // Worker thread
+        void process() {
+            out.clear();
+            in.flip();
+            int lineStart = in.position();
+            for (int i = lineStart; i < in.limit(); i++) {
+                if (in.get(i) == '\n') {
+                    int lineEnd = (i > lineStart && in.get(i - 1) == '\r') ? i - 1 : i;
+                    execute(lineStart, lineEnd);
+                    lineStart = i + 1;
+                    if (closeAfterWrite) {
+                        break;
+                    }
+                }
+            }
+            in.position(lineStart);
+            in.compact();
+            flush();
+        }
+
+        private void execute(int start, int end) {
+            int cmdEnd = nextSpace(start, end);
+            int len = cmdEnd - start;
+            if (len == 3 && matches(start, "get")) {
+                get(cmdEnd, end, false);
+            } else if (len == 4 && matches(start, "gets")) {
+                get(cmdEnd, end, true);
+            } else if (len == 7 && matches(start, "version")) {
+                put(VERSION);
+            } else if (len == 4 && matches(start, "quit")) {
+                closeAfterWrite = true;
+            } else if (len > 0) {
+                put(ERROR);
+            }
+        }
+
+        private void get(int pos, int end, boolean withCas) {
+            while (pos < end) {
+                while (pos < end && in.get(pos) == ' ') {
+                    pos++;
+                }
+                int keyEnd = nextSpace(pos, end);
+                if (keyEnd == pos) {
+                    break;
+                }
+                String k = key(pos, keyEnd);
+                pos = keyEnd;
+                Object value;
+                try {
+                    value = cache.lookup(k);
+                } catch (Exception e) {
+                    put("SERVER_ERROR " + e.getClass().getSimpleName() + "\r\n");
+                    return;
+                }
+                if (value == null) {
+                    continue; // memcached convention: a miss is simply absent from the reply
+                }
+                byte[] data = null;
+                String text = null;
+                long cas;
+                if (value instanceof EncodedBody body) {
+                    data = body.body; // pre-serialized entries need no encoding at all
+                    cas = body.etag.hashCode();
+                } else if (value instanceof byte[] b) {
+                    data = b;
+                    cas = Arrays.hashCode(b);
+                } else {
+                    text = value.toString();
+                    cas = text.hashCode();
+                }
+                put(VALUE);
+                putAscii(k);
+                put((byte) ' ');
+                put((byte) '0'); // flags
+                put((byte) ' ');
+                putNumber(data != null ? data.length : utf8Length(text));
+                if (withCas) {
+                    // Content-derived, so it only changes when the value does
+                    put((byte) ' ');
+                    putNumber(cas & 0xffffffffL);
+                }
+                put(CRLF);
+                if (data != null) {
+                    put(data);
+                } else {
+                    putUtf8(text);
+                }
+                put(CRLF);
+            }
+            put(END);
+        }
+
+        // Worker thread; tries to write inline and only falls back to the selector if the socket is full
+        void flush() {
+            out.flip();
+            try {
+                while (out.hasRemaining()) {
+                    if (ch.write(out) == 0) {
+                        key.interestOps(SelectionKey.OP_WRITE);
+                        selector.wakeup();
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            afterWrite();
+        }
+
+        private void afterWrite() {
+            if (closeAfterWrite) {
+                close();
+                return;
+            }
+            out.clear();
+            if (hasCompleteLine()) {
+                // Pipelined commands already buffered
+                key.interestOps(0);
+                workers.execute(this::process);
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            selector.wakeup();
+        }
+
+        private boolean hasCompleteLine() {
+            for (int i = 0; i < in.position(); i++) {
+                if (in.get(i) == '\n') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int nextSpace(int pos, int end) {
+            while (pos < end && in.get(pos) != ' ') {
+                pos++;
+            }
+            return pos;
+        }
+
+        private boolean matches(int pos, String word) {
+            for (int i = 0; i < word.length(); i++) {
+                if (in.get(pos + i) != word.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Reuses the String from an earlier request for the same key; only new keys allocate
+        private String key(int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + (in.get(i) & 0xff);
+            }
+            int slot = (h ^ (h >>> 16)) & (KEY_CACHE_SIZE - 1);
+            String cached = keyCache[slot];
+            if (cached != null && cached.hashCode() == h && sameAscii(cached, start, end)) {
+                return cached;
+            }
+            char[] chars = new char[end - start];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (char) (in.get(start + i) & 0xff);
+            }
+            String k = new String(chars);
+            keyCache[slot] = k;
+            return k;
+        }
+
+        private boolean sameAscii(String s, int start, int end) {
+            if (s.length() != end - start) {
+                return false;
+            }
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) != (in.get(start + i) & 0xff)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void ensure(int extra) {
+            if (out.remaining() >= extra) {
+                return;
+            }
+            // Grow and keep the bigger buffer for the rest of the connection's life
+            ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(out.capacity() * 2, out.position() + extra));
+            out.flip();
+            bigger.put(out);
+            out = bigger;
+        }
+
+        private void put(byte b) {
+            ensure(1);
+            out.put(b);
+        }
+
+        private void put(byte[] bytes) {
+            ensure(bytes.length);
+            out.put(bytes);
+        }
+
+        private void put(String s) {
+            put(s.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private void putAscii(String s) {
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                out.put((byte) s.charAt(i));
+            }
+        }
+
+        private int utf8Length(String s) {
+            int n = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    n += 1;
+                } else if (c < 0x800) {
+                    n += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    n += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    n += 1;
+                } else {
+                    n += 3;
+                }
+            }
+            return n;
+        }
+
+        // Same bytes as getBytes(UTF_8), written in place; lone surrogates become '?' like the JDK encoder
+        private void putUtf8(String s) {
+            ensure(utf8Length(s));
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    out.put((byte) c);
+                } else if (c < 0x800) {
+                    out.put((byte) (0xc0 | (c >> 6)));
+                    out.put((byte) (0x80 | (c & 0x3f)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    out.put((byte) (0xf0 | (cp >> 18)));
+                    out.put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                    out.put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                    out.put((byte) (0x80 | (cp & 0x3f)));
+                } else if (Character.isSurrogate(c)) {
+                    out.put((byte) '?');
+                } else {
+                    out.put((byte) (0xe0 | (c >> 12)));
+                    out.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                    out.put((byte) (0x80 | (c & 0x3f)));
+                }
+            }
+        }
+
+        private void putNumber(long n) {
+            ensure(20);
+            if (n == 0) {
+                out.put((byte) '0');
+                return;
+            }
+            int start = out.position();
+            while (n > 0) {
+                out.put((byte) ('0' + (n % 10)));
+                n /= 10;
+            }
+            // Digits went in backwards; reverse them in place
+            for (int i = start, j = out.position() - 1; i < j; i++, j--) {
+                byte t = out.get(i);
+                out.put(i, out.get(j));
+                out.put(j, t);
+            }
+        }
+
+        private void close() {
+            key.cancel();
+            try {
+                ch.close();
+            } catch (IOException ignored) {
+                // already gone
+            }
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.cache.mrc;
+
+import com.example.cache.core.BackgroundPass;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Online miss-ratio curve (hit ratio vs. capacity) from live traffic, SHARDS-style.
+ *
+ * Keys are sampled spatially: a key is tracked iff its 64-bit hash is below a threshold, so the
+ * sample keeps every reuse of the keys it contains. For each sampled reference we compute the
+ * LRU stack (reuse) distance among sampled keys with a Fenwick tree over access timestamps,
+ * scale it by 1 / sampling rate and add it to a histogram; the hit ratio at capacity C is then
+ * the share of references whose scaled distance is below C. This is exact for LRU and a close
+ * approximation for SIEVE, and it ignores TTL expiry.
+ *
+ * Memory is fixed (fixed-size SHARDS): at most MAX_TRACKED keys are tracked; when another key
+ * would exceed that, the threshold drops to the largest tracked hash and that key is forgotten.
+ * The histogram is halved every DECAY_MILLIS so the curve follows the current traffic mix.
+ *
+ * Optionally, every RESIZE_MILLIS it picks the smallest capacity within [min, max] predicted to
+ * reach the target hit ratio and hands it to the resizer if it differs by more than 10%.
+ */
+public class MissRatioCurveEstimator {
+
+    private static final Logger log = LoggerFactory.getLogger(MissRatioCurveEstimator.class);
+
+    static final int MAX_TRACKED = 8 * 1024;
+    static final int TIMESTAMPS = 4 * MAX_TRACKED; // compacted when exhausted
+    private static final int BUCKETS = 1024;
+    private static final long DRAIN_MILLIS = 50;
+    private static final long DECAY_MILLIS = 60_000;
+    private static final long RESIZE_MILLIS = 30_000;
+    private static final double MIN_REFS_TO_RESIZE = 1_000;
+    private static final int QUEUE_SIZE = 4096;
+
+    // Sampling state; the threshold is read on the hit path, everything else is worker-only
+    private volatile long threshold = Long.MAX_VALUE;
+    private final ArrayBlockingQueue<Long> sampled = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final HashMap<Long, Integer> lastAccess = new HashMap<>();
+    private final TreeSet<Long> trackedHashes = new TreeSet<>();
+    private final long[] hashAt = new long[TIMESTAMPS];
+    private final boolean[] live = new boolean[TIMESTAMPS];
+    private int[] fenwick = new int[TIMESTAMPS + 1];
+    private int clock;
+
+    // Histogram of scaled reuse distances, guarded by this
+    private final double bucketWidth;
+    private final double[] histogram = new double[BUCKETS];
+    private double beyondRange;   // reuse distance larger than the histogram covers
+    private double coldMisses;    // first reference to a sampled key
+    private double references;
+
+    private final double targetHitRatio;
+    private final int minCapacity;
+    private final int maxCapacity;
+    private final IntConsumer resizer;
+    private volatile int capacity;
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor();
+    private long lastDecay = System.currentTimeMillis();
+    private long lastResize = System.currentTimeMillis();
+    private final LongAdder droppedSamples = new LongAdder();
+    private final LongAdder resizes = new LongAdder();
+
+    /**
+     * @param targetHitRatio 0 to only publish the curve
+     * @param resizer        called with the new capacity; may be null when targetHitRatio is 0
+     */
+    public MissRatioCurveEstimator(int capacity, double targetHitRatio, int minCapacity, int maxCapacity,
+                                   IntConsumer resizer) {
+        this.capacity = capacity;
+        this.targetHitRatio = targetHitRatio;
+        this.minCapacity = minCapacity;
+        this.maxCapacity = maxCapacity;
+        this.resizer = resizer;
+        // Wide enough for the 4x prediction and the whole resize range
+        this.bucketWidth = 4.0 * Math.max(capacity, maxCapacity) / BUCKETS;
+        worker.scheduleWithFixedDelay(BackgroundPass.logFailures(log, "Miss-ratio curve pass", this::drain), DRAIN_MILLIS, DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Hit path: one hash and compare, plus a non-blocking offer for sampled keys
+    public void record(String key) {
+        long h = mix(key.hashCode());
+        if (h >= threshold) {
+            return;
+        }
+        if (!sampled.offer(h)) {
+            droppedSamples.increment();
+        }
+    }
+
+    private static long mix(int hashCode) {
+        // fmix64 from MurmurHash3, so similar keys spread over the whole range
+        long h = hashCode;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h & Long.MAX_VALUE;
+    }
+
+    private void drain() {
+        Long h;
+        while ((h = sampled.poll()) != null) {
+            access(h);
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastDecay >= DECAY_MILLIS) {
+            lastDecay = now;
+            decay();
+        }
+        if (targetHitRatio > 0 && now - lastResize >= RESIZE_MILLIS) {
+            lastResize = now;
+            maybeResize();
+        }
+    }
+
+    // Worker thread only (tests drive it directly): one reference to the sampled hash h
+    void access(long h) {
+        if (h >= threshold) {
+            return; // queued before the threshold dropped
+        }
+        if (clock == TIMESTAMPS) {
+            compact();
+        }
+        double rate = (double) threshold / Long.MAX_VALUE;
+        Integer previous = lastAccess.get(h);
+        if (previous != null) {
+            // Distinct sampled keys touched since this key's last access
+            int distance = prefix(clock) - prefix(previous + 1);
+            add(previous, -1);
+            live[previous] = false;
+            recordDistance(distance / rate, 1 / rate);
+        } else {
+            recordCold(1 / rate);
+            trackedHashes.add(h);
+        }
+        hashAt[clock] = h;
+        live[clock] = true;
+        add(clock, 1);
+        lastAccess.put(h, clock);
+        clock++;
+
+        if (trackedHashes.size() > MAX_TRACKED) {
+            // Lower the threshold to the largest tracked hash and drop that key
+            long largest = trackedHashes.pollLast();
+            threshold = largest;
+            Integer t = lastAccess.remove(largest);
+            if (t != null) {
+                add(t, -1);
+                live[t] = false;
+            }
+        }
+    }
+
+    // Worker thread only, for tests
+    int trackedKeys() {
+        return trackedHashes.size();
+    }
+
+    long threshold() {
+        return threshold;
+    }
+
+    // Renumbers live timestamps 0..n-1 so the Fenwick tree never grows
+    private void compact() {
+        int[] fresh = new int[TIMESTAMPS + 1];
+        fenwick = fresh;
+        int next = 0;
+        for (int t = 0; t < TIMESTAMPS; t++) {
+            if (!live[t]) {
+                continue;
+            }
+            live[t] = false;
+            long h = hashAt[t];
+            hashAt[next] = h;
+            live[next] = true;
+            lastAccess.put(h, next);
+            add(next, 1);
+            next++;
+        }
+        clock = next;
+    }
+
+    // Fenwick tree over timestamps: 1 where a key's most recent access happened
+    private void add(int t, int delta) {
+        for (int i = t + 1; i <= TIMESTAMPS; i += i & -i) {
+            fenwick[i] += delta;
+        }
+    }
+
+    // Number of marked timestamps in [0, t)
+    private int prefix(int t) {
+        int sum = 0;
+        for (int i = t; i > 0; i -= i & -i) {
+            sum += fenwick[i];
+        }
+        return sum;
+    }
+
+    private synchronized void recordDistance(double scaledDistance, double weight) {
+        int bucket = (int) (scaledDistance / bucketWidth);
+        if (bucket < BUCKETS) {
+            histogram[bucket] += weight;
+        } else {
+            beyondRange += weight;
+        }
+        references += weight;
+    }
+
+    private synchronized void recordCold(double weight) {
+        coldMisses += weight;
+        references += weight;
+    }
+
+    private synchronized void decay() {
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] *= 0.5;
+        }
+        beyondRange *= 0.5;
+        coldMisses *= 0.5;
+        references *= 0.5;
+    }
+
+    // Predicted LRU hit ratio for a cache of the given size
+    public synchronized double hitRatio(int size) {
+        if (references == 0) {
+            return 0.0;
+        }
+        double hits = 0;
+        double limit = size / bucketWidth;
+        int full = (int) Math.min(limit, BUCKETS);
+        for (int i = 0; i < full; i++) {
+            hits += histogram[i];
+        }
+        if (full < BUCKETS) {
+            // Assume distances are spread evenly inside the partial bucket
+            hits += histogram[full] * (limit - full);
+        }
+        return hits / references;
+    }
+
+    private void maybeResize() {
+        synchronized (this) {
+            if (references < MIN_REFS_TO_RESIZE) {
+                return;
+            }
+        }
+        int step = Math.max(1, (int) bucketWidth);
+        int chosen = maxCapacity;
+        for (int c = minCapacity; c <= maxCapacity; c += step) {
+            if (hitRatio(c) >= targetHitRatio) {
+                chosen = c;
+                break;
+            }
+        }
+        int current = capacity;
+        if (Math.abs(chosen - current) > current / 10) {
+            capacity = chosen;
+            resizes.increment();
+            resizer.accept(chosen);
+        }
+    }
+
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // Curve for the /mrc endpoint
+    public Map<String, Object> curve() {
+        int c = capacity;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("capacity", c);
+        result.put("samplingRate", (double) threshold / Long.MAX_VALUE);
+        synchronized (this) {
+            result.put("sampledReferences", references);
+            result.put("coldMissRatio", references == 0 ? 0.0 : coldMisses / references);
+        }
+        Map<String, Object> predicted = new LinkedHashMap<>();
+        predicted.put("0.5x", hitRatio(c / 2));
+        predicted.put("1x", hitRatio(c));
+        predicted.put("2x", hitRatio(c * 2));
+        predicted.put("4x", hitRatio(c * 4));
+        result.put("predictedHitRatio", predicted);
+        List<Map<String, Object>> points = new ArrayList<>();
+        for (int i = 1; i <= 32; i++) {
+            int size = (int) (BUCKETS * bucketWidth * i / 32);
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("capacity", size);
+            p.put("hitRatio", hitRatio(size));
+            points.add(p);
+        }
+        result.put("curve", points);
+        if (targetHitRatio > 0) {
+            result.put("targetHitRatio", targetHitRatio);
+            result.put("minCapacity", minCapacity);
+            result.put("maxCapacity", maxCapacity);
+            result.put("resizes", resizes.sum());
+        }
+        result.put("droppedSamples", droppedSamples.sum());
+        return result;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.cache.namespace;
+
+import com.example.cache.core.BackgroundPass;
+import com.example.cache.core.CacheService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Named cache namespaces sharing one process but not one store.
+ *
+ * Each namespace gets its own CacheService (own store, eviction policy, refresh strategy and TTL),
+ * so one tenant's scan can only evict its own keys. Capacity comes from a shared pool: every
+ * namespace is guaranteed {@code pool * weight / totalWeight}. Once a second the pool is
+ * rebalanced: if some namespace is at its guarantee, a namespace well under its own keeps only
+ * what it uses plus some headroom and lends the rest to the full ones by weight. Nobody lends
+ * when nobody needs it. A lender that grows into its headroom gets its whole guarantee back on
+ * the next pass, and borrowers are shrunk (CacheService.resize evicts) to make room.
+ *
+ * Clearing a namespace swaps in a fresh service built the same way and retires the old one, so
+ * the cost doesn't depend on how many keys it holds and the namespace keeps its configuration.
+ */
+public class NamespaceManager {
+
+    private static final Logger log = LoggerFactory.getLogger(NamespaceManager.class);
+
+    // Captures the current cache configuration for a namespace/mode/TTL
+    public interface ServiceFactory {
+        ServiceBuilder configure(String namespace, String mode, long ttlMillis);
+    }
+
+    // Builds that namespace's caches, empty, at the given capacity
+    public interface ServiceBuilder {
+        CacheService build(int capacity);
+    }
+
+    private static final long REBALANCE_MILLIS = 1_000;
+    private static final double HEADROOM = 0.1; // of the guarantee, kept free for lenders to grow into
+
+    private static class Namespace {
+        final String name;
+        double weight;
+        String mode;
+        long ttlMillis;
+        ServiceBuilder builder;
+        int guaranteed;
+        volatile int capacity;
+        int lastUsed;   // size at the previous rebalance
+        volatile CacheService service;
+        final LongAdder clears = new LongAdder();
+
+        Namespace(String name) {
+            this.name = name;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Namespace> namespaces = new ConcurrentHashMap<>();
+    private final ServiceFactory factory;
+    private final Consumer<CacheService> retirer;
+    private int poolCapacity;
+
+    private final ScheduledExecutorService rebalancer = Executors.newSingleThreadScheduledExecutor();
+
+    public NamespaceManager(int poolCapacity, ServiceFactory factory, Consumer<CacheService> retirer) {
+        this.poolCapacity = poolCapacity;
+        this.factory = factory;
+        this.retirer = retirer;
+        rebalancer.scheduleWithFixedDelay(BackgroundPass.logFailures(log, "Namespace rebalance", this::rebalance), REBALANCE_MILLIS, REBALANCE_MILLIS,
+            TimeUnit.MILLISECONDS);
+    }
+
+    // Request path
+    public CacheService service(String name) {
+        Namespace ns = namespaces.get(name);
+        if (ns == null) {
+            throw new IllegalArgumentException("Unknown namespace: " + name);
+        }
+        return ns.service;
+    }
+
+    // Creates the namespace, or updates it in place; a new mode or TTL keeps the cached entries
+    public synchronized void define(String name, double weight, String mode, long ttlMillis) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Namespace weight must be positive: " + weight);
+        }
+        Namespace ns = namespaces.get(name);
+        if (ns == null) {
+            ns = new Namespace(name);
+            ns.weight = weight;
+            ns.mode = mode;
+            ns.ttlMillis = ttlMillis;
+            ns.capacity = share(weight, totalWeight() + weight);
+            ns.builder = factory.configure(name, mode, ttlMillis);
+            ns.service = ns.builder.build(ns.capacity);
+            namespaces.put(name, ns);
+        } else {
+            ns.weight = weight;
+            if (!mode.equals(ns.mode) || ttlMillis != ns.ttlMillis) {
+                ServiceBuilder builder = factory.configure(name, mode, ttlMillis);
+                CacheService fresh = builder.build(ns.capacity);
+                CacheService old = ns.service;
+                fresh.warmFrom(old);
+                ns.builder = builder;
+                ns.mode = mode;
+                ns.ttlMillis = ttlMillis;
+                ns.service = fresh;
+                retirer.accept(old);
+            }
+        }
+        rebalance();
+    }
+
+    // O(1): new requests go to an empty store, the old one is dropped once in-flight requests leave
+    public synchronized void clear(String name) {
+        Namespace ns = namespaces.get(name);
+        if (ns == null) {
+            throw new IllegalArgumentException("Unknown namespace: " + name);
+        }
+        CacheService old = ns.service;
+        ns.service = ns.builder.build(ns.capacity);
+        ns.clears.increment();
+        retirer.accept(old);
+    }
+
+    public synchronized void remove(String name) {
+        Namespace ns = namespaces.remove(name);
+        if (ns != null) {
+            retirer.accept(ns.service);
+            rebalance();
+        }
+    }
+
+    public synchronized void setPoolCapacity(int poolCapacity) {
+        this.poolCapacity = poolCapacity;
+        rebalance();
+    }
+
+    // Scheduled once a second; also after every change to the namespaces or the pool
+    synchronized void rebalance() {
+        if (namespaces.isEmpty()) {
+            return;
+        }
+        double totalWeight = totalWeight();
+        Map<Namespace, Integer> lenders = new LinkedHashMap<>();
+        double borrowerWeight = 0;
+        for (Namespace ns : namespaces.values()) {
+            ns.guaranteed = share(ns.weight, totalWeight);
+            int used = ns.service.size();
+            int headroom = Math.max(1, (int) (ns.guaranteed * HEADROOM));
+            // Grew through half its headroom since the last pass: filling up, so it gets its full guarantee
+            boolean filling = used - ns.lastUsed > headroom / 2;
+            ns.lastUsed = used;
+            if (!filling && used + headroom < ns.guaranteed) {
+                // Could lend: keep what it uses plus room to grow
+                lenders.put(ns, used + headroom);
+            } else {
+                borrowerWeight += ns.weight;
+            }
+        }
+
+        Map<Namespace, Integer> target = new LinkedHashMap<>();
+        int spare = 0;
+        if (borrowerWeight > 0) {
+            for (Map.Entry<Namespace, Integer> e : lenders.entrySet()) {
+                target.put(e.getKey(), e.getValue());
+                spare += e.getKey().guaranteed - e.getValue();
+            }
+        }
+        for (Namespace ns : namespaces.values()) {
+            if (!target.containsKey(ns)) {
+                // Borrowers split the spare by weight; with no borrower everyone keeps its guarantee
+                int borrowed = lenders.containsKey(ns) ? 0 : (int) (spare * ns.weight / borrowerWeight);
+                target.put(ns, ns.guaranteed + borrowed);
+            }
+        }
+        for (Map.Entry<Namespace, Integer> e : target.entrySet()) {
+            Namespace ns = e.getKey();
+            int capacity = e.getValue();
+            if (capacity != ns.capacity) {
+                ns.capacity = capacity;
+                ns.service.resize(capacity);
+            }
+        }
+    }
+
+    private double totalWeight() {
+        double total = 0;
+        for (Namespace ns : namespaces.values()) {
+            total += ns.weight;
+        }
+        return total;
+    }
+
+    private int share(double weight, double totalWeight) {
+        return Math.max(1, (int) (poolCapacity * weight / totalWeight));
+    }
+
+    public void shutdown() {
+        rebalancer.shutdownNow();
+    }
+
+    // Per-namespace usage for /namespaces; hit counters restart when a namespace is cleared
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("poolCapacity", poolCapacity);
+        Map<String, Object> all = new TreeMap<>();
+        for (Namespace ns : namespaces.values()) {
+            CacheService service = ns.service;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("mode", ns.mode);
+            stats.put("ttl", ns.ttlMillis);
+            stats.put("weight", ns.weight);
+            stats.put("guaranteedCapacity", ns.guaranteed);
+            stats.put("capacity", ns.capacity);
+            stats.put("size", service.size());
+            stats.put("clears", ns.clears.sum());
+            stats.putAll(service.stats());
+            all.put(ns.name, stats);
+        }
+        result.put("namespaces", all);
+        return result;
+    }
+}
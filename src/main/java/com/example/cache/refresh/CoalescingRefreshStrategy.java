@@ -5,6 +5,7 @@ import com.example.cache.eviction.EvictionStrategy;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 public class CoalescingRefreshStrategy implements RefreshStrategy {
@@ -12,8 +13,19 @@ public class CoalescingRefreshStrategy implements RefreshStrategy {
     private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
 
     // Dedicated thread pool to avoid ForkJoinPool exhaustion under high load
-    private final java.util.concurrent.ExecutorService asyncExecutor = java.util.concurrent.Executors
-            .newFixedThreadPool(200);
+    private final java.util.concurrent.ExecutorService asyncExecutor;
+    private final boolean ownsExecutor;
+
+    public CoalescingRefreshStrategy() {
+        this.asyncExecutor = java.util.concurrent.Executors.newFixedThreadPool(200);
+        this.ownsExecutor = true;
+    }
+
+    // Loads run on a pool shared with other caches; its owner shuts it down
+    public CoalescingRefreshStrategy(java.util.concurrent.ExecutorService sharedExecutor) {
+        this.asyncExecutor = sharedExecutor;
+        this.ownsExecutor = false;
+    }
 
     @Override
     public Object get(
@@ -23,6 +35,18 @@ public class CoalescingRefreshStrategy implements RefreshStrategy {
             EvictionStrategy evictionStrategy,
             int capacity,
             long ttlMillis) throws Exception {
+        return get(key, recomputeFn, store, evictionStrategy, capacity, ttlMillis, Long.MAX_VALUE);
+    }
+
+    @Override
+    public Object get(
+            String key,
+            Supplier<Object> recomputeFn,
+            ConcurrentHashMap<String, CacheEntry<Object>> store,
+            EvictionStrategy evictionStrategy,
+            int capacity,
+            long ttlMillis,
+            long deadlineNanos) throws Exception {
 
         long now = System.currentTimeMillis();
         CacheEntry<Object> entry = store.get(key);
@@ -41,7 +65,7 @@ public class CoalescingRefreshStrategy implements RefreshStrategy {
             Object value = recomputeFn.get();
             long delta = System.nanoTime() - start;
 
-            CacheEntry<Object> newEntry = new CacheEntry<>(value, System.currentTimeMillis() + ttlMillis, delta);
+            CacheEntry<Object> newEntry = CacheEntry.fromLoad(value, System.currentTimeMillis(), ttlMillis, delta);
 
             if (store.size() >= capacity) {
                 evictionStrategy
@@ -52,13 +76,23 @@ public class CoalescingRefreshStrategy implements RefreshStrategy {
             store.put(key, newEntry);
             evictionStrategy.onInsert(key, newEntry);
 
-            return value;
+            return newEntry.value;
         }, asyncExecutor));
 
-        try {
+        // Unregister when the load finishes, not when a waiter gives up,
+        // otherwise a timed-out waiter would let the next request start a duplicate load
+        future.whenComplete((v, ex) -> inFlight.remove(key, future));
+
+        if (deadlineNanos == Long.MAX_VALUE) {
             return future.get();
-        } finally {
-            inFlight.remove(key, future);
+        }
+        return future.get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        if (ownsExecutor) {
+            asyncExecutor.shutdown();
         }
     }
 }
@@ -31,7 +31,7 @@ public class NaiveTtlRefreshStrategy implements RefreshStrategy {
         Object value = recomputeFn.get();
         long delta = System.nanoTime() - start;
 
-        CacheEntry<Object> newEntry = new CacheEntry<>(value, now + ttlMillis, delta);
+        CacheEntry<Object> newEntry = CacheEntry.fromLoad(value, now, ttlMillis, delta);
 
         if (store.size() >= capacity) {
             evictionStrategy
@@ -42,6 +42,6 @@ public class NaiveTtlRefreshStrategy implements RefreshStrategy {
         store.put(key, newEntry);
         evictionStrategy.onInsert(key, newEntry);
 
-        return value;
+        return newEntry.value;
     }
 }
@@ -2,17 +2,35 @@ package com.example.cache.refresh;
 
 import com.example.cache.core.CacheEntry;
 import com.example.cache.eviction.EvictionStrategy;
+import com.example.cache.hedge.DeadlineExceededException;
+import com.example.cache.limit.LoadShedException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ProbabilisticEarlyRefreshStrategy implements RefreshStrategy {
 
+    private static final Logger log = LoggerFactory.getLogger(ProbabilisticEarlyRefreshStrategy.class);
+
     // Use a fixed thread pool to prevent unbounded thread growth
-    private final ExecutorService asyncExecutor = Executors.newFixedThreadPool(200);
+    private final ExecutorService asyncExecutor;
+    private final boolean ownsExecutor;
     private final double beta = 1.0; 
 
+    public ProbabilisticEarlyRefreshStrategy() {
+        this.asyncExecutor = Executors.newFixedThreadPool(200);
+        this.ownsExecutor = true;
+    }
+
+    // Early refreshes run on a pool shared with other caches; its owner shuts it down
+    public ProbabilisticEarlyRefreshStrategy(ExecutorService sharedExecutor) {
+        this.asyncExecutor = sharedExecutor;
+        this.ownsExecutor = false;
+    }
+
     @Override
     public Object get(
         String key,
@@ -50,7 +68,7 @@ public class ProbabilisticEarlyRefreshStrategy implements RefreshStrategy {
                         Object newVal = recomputeFn.get();
                         long newDelta = System.nanoTime() - start;
 
-                        CacheEntry<Object> newEntry = new CacheEntry<>(newVal, System.currentTimeMillis() + ttlMillis, newDelta);
+                        CacheEntry<Object> newEntry = CacheEntry.fromLoad(newVal, System.currentTimeMillis(), ttlMillis, newDelta);
 
                         if (store.size() >= capacity) {
                             evictionStrategy
@@ -60,8 +78,11 @@ public class ProbabilisticEarlyRefreshStrategy implements RefreshStrategy {
 
                         store.put(key, newEntry);
                         evictionStrategy.onInsert(key, newEntry);
+                    } catch (LoadShedException | DeadlineExceededException e) {
+                        // Backend saturated or slower than the request's deadline: the current value
+                        // is still valid, and a load that overran still fills the cache when it lands
                     } catch (Exception e) {
-                        e.printStackTrace();
+                        log.warn("Early refresh failed for {}", key, e);
                     }
                 });
             }
@@ -74,7 +95,7 @@ public class ProbabilisticEarlyRefreshStrategy implements RefreshStrategy {
         Object value = recomputeFn.get();
         long delta = System.nanoTime() - start;
 
-        CacheEntry<Object> newEntry = new CacheEntry<>(value, now + ttlMillis, delta);
+        CacheEntry<Object> newEntry = CacheEntry.fromLoad(value, now, ttlMillis, delta);
 
         if (store.size() >= capacity) {
             evictionStrategy
@@ -85,6 +106,18 @@ public class ProbabilisticEarlyRefreshStrategy implements RefreshStrategy {
         store.put(key, newEntry);
         evictionStrategy.onInsert(key, newEntry);
 
-        return value;
+        return newEntry.value;
+    }
+
+    @Override
+    public boolean loadsOnHit() {
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+        if (ownsExecutor) {
+            asyncExecutor.shutdown();
+        }
     }
 }
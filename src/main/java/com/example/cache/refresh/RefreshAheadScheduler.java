@@ -0,0 +1,298 @@
+package com.example.cache.refresh;
+
+import com.example.cache.core.BackgroundPass;
+import com.example.cache.core.CacheEntry;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Background refresh-ahead driven by access frequency.
+ *
+ * PER only refreshes if a request happens to land close to expiry; a popular but bursty key
+ * can still expire in a gap and make the next burst block on the backend. This scheduler keeps
+ * an exponentially decayed request rate per cached key and, on every tick, reloads keys that are
+ * about to expire when {@code rate * loadTime} (the requests expected to pile up behind a reload)
+ * is at least {@code threshold}. A per-second budget, shared with the schedulers of other caches
+ * in front of the same backend, caps how hard they can push it; when there are more candidates
+ * than budget, the busiest keys go first.
+ *
+ * Only keys already in the store are tracked, at most {@code maxTracked} of them, and keys whose
+ * rate has decayed to nothing are dropped. Ticks only look at the keys due to expire soon; the
+ * whole table is walked once per SCAN_MILLIS to rebuild that list.
+ *
+ * Independent of the eviction strategy: reloads go through the same insert path as everything else.
+ * A refresh counts as useful if the key is requested after the old copy would have expired,
+ * and as wasted if it is refreshed again or dropped before that.
+ */
+public class RefreshAheadScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshAheadScheduler.class);
+
+    // Performs a blocking load + insert for key
+    public interface Refresher {
+        void refresh(String key, Function<String, Object> fetch) throws Exception;
+    }
+
+    private static final long TICK_MILLIS = 100;
+    private static final long SCAN_MILLIS = 1_000;
+    private static final double DECAY_SECONDS = 10.0;
+    private static final double MIN_RATE = 0.01; // req/s; below this a key is forgotten
+
+    private static class KeyStats {
+        double rate;          // decayed requests/second as of lastNanos
+        long lastNanos;
+        Function<String, Object> fetch;
+        boolean pending;      // refreshed, waiting to see if anyone needed it
+        long usefulAfter;     // old expiry time; an access after this proves the refresh useful
+        boolean refreshing;
+
+        // Returns true if this access is the one that proves the last refresh was needed
+        synchronized boolean onAccess(long nowNanos, long nowMillis, Function<String, Object> fetch) {
+            rate = decayedRate(nowNanos) + 1.0 / DECAY_SECONDS;
+            lastNanos = nowNanos;
+            this.fetch = fetch;
+            if (pending && nowMillis >= usefulAfter) {
+                pending = false;
+                return true;
+            }
+            return false;
+        }
+
+        double decayedRate(long nowNanos) {
+            double dt = (nowNanos - lastNanos) / 1e9;
+            return rate * Math.exp(-dt / DECAY_SECONDS);
+        }
+    }
+
+    private static class Candidate {
+        final String key;
+        final KeyStats stats;
+        final double expectedRequests;
+        final long expiryTime;
+
+        Candidate(String key, KeyStats stats, double expectedRequests, long expiryTime) {
+            this.key = key;
+            this.stats = stats;
+            this.expectedRequests = expectedRequests;
+            this.expiryTime = expiryTime;
+        }
+    }
+
+    private final ConcurrentHashMap<String, KeyStats> tracked = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CacheEntry<Object>> store;
+    private final Refresher refresher;
+    private final double threshold;
+    private final RefreshBudget budget;
+    private volatile int maxTracked;
+
+    // Ticker thread only: keys expiring before the next scan, plus keys tracked since the last one
+    private final Set<String> dueSoon = new HashSet<>();
+    private final ConcurrentLinkedQueue<String> newlyTracked = new ConcurrentLinkedQueue<>();
+    private long lastScan;
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService workers = Executors.newFixedThreadPool(8);
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder useful = new LongAdder();
+    private final LongAdder wasted = new LongAdder();
+    private final LongAdder overBudget = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+
+    public RefreshAheadScheduler(
+        ConcurrentHashMap<String, CacheEntry<Object>> store,
+        Refresher refresher,
+        double threshold,
+        RefreshBudget budget,
+        int maxTracked
+    ) {
+        this.store = store;
+        this.refresher = refresher;
+        this.threshold = threshold;
+        this.budget = budget;
+        this.maxTracked = maxTracked;
+        ticker.scheduleWithFixedDelay(BackgroundPass.logFailures(log, "Refresh-ahead tick", this::tick), TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Follows the cache's capacity. Over a lowered limit nothing new is tracked, and the keys the
+    // store sheds are dropped at the next scan
+    public void setMaxTracked(int maxTracked) {
+        this.maxTracked = maxTracked;
+    }
+
+    // fetch is kept for the background reload, so callers should pass one shared instance
+    public void recordAccess(String key, Function<String, Object> fetch) {
+        KeyStats ks = tracked.get(key);
+        if (ks == null) {
+            // One-off misses never get an entry; a key starts counting once it is cached
+            if (!store.containsKey(key)) {
+                return;
+            }
+            if (tracked.size() >= maxTracked) {
+                untracked.increment();
+                return;
+            }
+            KeyStats fresh = new KeyStats();
+            ks = tracked.putIfAbsent(key, fresh);
+            if (ks == null) {
+                ks = fresh;
+                newlyTracked.add(key);
+            }
+        }
+        if (ks.onAccess(System.nanoTime(), System.currentTimeMillis(), fetch)) {
+            useful.increment();
+        }
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+
+        if (now - lastScan >= SCAN_MILLIS) {
+            lastScan = now;
+            scan(now, nowNanos);
+        } else {
+            String key;
+            while ((key = newlyTracked.poll()) != null) {
+                dueSoon.add(key);
+            }
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        Iterator<String> it = dueSoon.iterator();
+        while (it.hasNext()) {
+            String key = it.next();
+            KeyStats ks = tracked.get(key);
+            CacheEntry<Object> entry = store.get(key);
+            if (ks == null || entry == null) {
+                it.remove();
+                forget(key, ks);
+                continue;
+            }
+            double loadSeconds = entry.delta / 1e9;
+            long leadMillis = entry.delta / 1_000_000 + 2 * TICK_MILLIS;
+            if (entry.expiryTime - now > leadMillis || entry.expiryTime <= now) {
+                continue;
+            }
+            double expected;
+            synchronized (ks) {
+                if (ks.refreshing) {
+                    continue;
+                }
+                expected = ks.decayedRate(nowNanos) * loadSeconds;
+            }
+            if (expected >= threshold) {
+                candidates.add(new Candidate(key, ks, expected, entry.expiryTime));
+            }
+        }
+
+        candidates.sort((a, b) -> Double.compare(b.expectedRequests, a.expectedRequests));
+        for (Candidate c : candidates) {
+            if (!budget.tryAcquire()) {
+                overBudget.increment();
+                continue;
+            }
+            submit(c.key, c.stats, c.expiryTime);
+        }
+    }
+
+    // Drops evicted and cold keys, and rebuilds the list of keys that expire before the next scan
+    private void scan(long now, long nowNanos) {
+        dueSoon.clear();
+        newlyTracked.clear();
+        Iterator<Map.Entry<String, KeyStats>> it = tracked.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, KeyStats> e = it.next();
+            KeyStats ks = e.getValue();
+            CacheEntry<Object> entry = store.get(e.getKey());
+            if (entry == null) {
+                // Evicted or cleared: stop tracking so memory follows the cache size
+                it.remove();
+                forget(e.getKey(), ks);
+                continue;
+            }
+            synchronized (ks) {
+                if (!ks.refreshing && !ks.pending && ks.decayedRate(nowNanos) < MIN_RATE) {
+                    it.remove();
+                    continue;
+                }
+            }
+            long leadMillis = entry.delta / 1_000_000 + 2 * TICK_MILLIS;
+            if (entry.expiryTime - now <= SCAN_MILLIS + leadMillis) {
+                dueSoon.add(e.getKey());
+            }
+        }
+    }
+
+    private void forget(String key, KeyStats ks) {
+        if (ks == null) {
+            return;
+        }
+        tracked.remove(key, ks);
+        synchronized (ks) {
+            if (ks.pending) {
+                ks.pending = false;
+                wasted.increment();
+            }
+        }
+    }
+
+    private void submit(String key, KeyStats ks, long oldExpiry) {
+        Function<String, Object> fetch;
+        synchronized (ks) {
+            if (ks.pending) {
+                wasted.increment(); // previous refresh was never needed
+            }
+            ks.pending = false;
+            ks.refreshing = true;
+            fetch = ks.fetch;
+        }
+        scheduled.increment();
+        workers.submit(() -> {
+            try {
+                refresher.refresh(key, fetch);
+                synchronized (ks) {
+                    ks.pending = true;
+                    ks.usefulAfter = oldExpiry;
+                }
+            } catch (Exception e) {
+                // Load failed or was shed; the key will just expire normally
+            } finally {
+                synchronized (ks) {
+                    ks.refreshing = false;
+                }
+            }
+        });
+    }
+
+    public void shutdown() {
+        ticker.shutdownNow();
+        workers.shutdown();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("refreshAheadTrackedKeys", tracked.size());
+        stats.put("refreshAheadUntrackedAccesses", untracked.sum());
+        stats.put("refreshAheadScheduled", scheduled.sum());
+        stats.put("refreshAheadUseful", useful.sum());
+        stats.put("refreshAheadWasted", wasted.sum());
+        stats.put("refreshAheadOverBudget", overBudget.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.cache.refresh;
+
+/**
+ * Token bucket capping background refreshes per second across every scheduler that shares it.
+ *
+ * All caches in front of one backend draw from the same budget, so adding a namespace doesn't
+ * add another {@code perSecond} reloads. Holds at most one second's worth of tokens.
+ */
+public class RefreshBudget {
+
+    private double perSecond;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    public RefreshBudget(int perSecond) {
+        this.perSecond = perSecond;
+        this.tokens = perSecond;
+    }
+
+    public synchronized void setPerSecond(int perSecond) {
+        refill();
+        this.perSecond = perSecond;
+        tokens = Math.min(tokens, perSecond);
+    }
+
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1.0) {
+            return false;
+        }
+        tokens -= 1.0;
+        return true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(perSecond, tokens + perSecond * (now - lastRefillNanos) / 1e9);
+        lastRefillNanos = now;
+    }
+}
@@ -14,4 +14,32 @@ public interface RefreshStrategy {
         int capacity,
         long ttlMillis
     ) throws Exception;
+
+    /**
+     * Deadline-aware variant. deadlineNanos is an absolute System.nanoTime() value
+     * (Long.MAX_VALUE for none). Strategies that wait on someone else's load must give up
+     * with a TimeoutException once it passes; strategies that load on the calling thread
+     * can rely on the loader to enforce it.
+     */
+    default Object get(
+        String key,
+        Supplier<Object> recomputeFn,
+        ConcurrentHashMap<String, CacheEntry<Object>> store,
+        EvictionStrategy evictionStrategy,
+        int capacity,
+        long ttlMillis,
+        long deadlineNanos
+    ) throws Exception {
+        return get(key, recomputeFn, store, evictionStrategy, capacity, ttlMillis);
+    }
+
+    // True if a fresh hit may still call recomputeFn (e.g. an early refresh). When false, the
+    // caller can serve a fresh hit itself with onHit + the stored value and skip building a loader.
+    default boolean loadsOnHit() {
+        return false;
+    }
+
+    // Lets queued background loads finish, then releases the strategy's threads
+    default void shutdown() {
+    }
 }
@@ -0,0 +1,203 @@
+package com.example.cache.shadow;
+
+import com.example.cache.core.BackgroundPass;
+import com.example.cache.core.CacheEntry;
+import com.example.cache.eviction.EvictionStrategy;
+import com.example.cache.eviction.LruEvictionStrategy;
+import com.example.cache.eviction.SieveEvictionStrategy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Picks the live eviction policy by simulating the candidates on a sample of the traffic.
+ *
+ * Keys are sampled by hash (1 in {@code sampling}), so a sampled key is always sampled and the
+ * shadow sees its full reuse pattern. Each candidate runs the real EvictionStrategy over a
+ * key-only store of {@code capacity / sampling} slots, which gives a miss ratio that tracks the
+ * full-size cache. Memory is fixed: the shadow stores plus a bounded hand-off queue.
+ *
+ * The request path only hashes the key and, for sampled keys, offers it to the queue (dropped
+ * if full). One background thread runs the simulation and, every window, compares miss ratios.
+ * If another candidate beats the live one by at least MARGIN for WINDOWS_TO_SWITCH windows in a
+ * row, the switcher is asked to move to it.
+ */
+public class ShadowPolicySelector {
+
+    private static final Logger log = LoggerFactory.getLogger(ShadowPolicySelector.class);
+
+    public static final String LRU = "LRU";
+    public static final String SIEVE = "SIEVE";
+
+    private static final long DRAIN_MILLIS = 50;
+    private static final long WINDOW_MILLIS = 10_000;
+    private static final int WINDOWS_TO_SWITCH = 3;
+    private static final double MARGIN = 0.01;     // absolute miss ratio
+    private static final long MIN_WINDOW_SAMPLES = 200;
+    private static final int QUEUE_SIZE = 4096;
+
+    // Shadow stores only need the keys; every slot shares this entry
+    private static final CacheEntry<Object> PRESENT = new CacheEntry<>(Boolean.TRUE, Long.MAX_VALUE, 0);
+
+    private static class Shadow {
+        final String name;
+        final EvictionStrategy policy;
+        final ConcurrentHashMap<String, CacheEntry<Object>> store = new ConcurrentHashMap<>();
+        long hits;
+        long misses;
+        volatile double lastMissRatio = -1;
+
+        Shadow(String name, Supplier<EvictionStrategy> factory) {
+            this.name = name;
+            this.policy = factory.get();
+        }
+
+        // Same sequence as the refresh strategies, minus the loading
+        void access(String key, int capacity) {
+            if (store.containsKey(key)) {
+                hits++;
+                policy.onHit(key, PRESENT);
+                return;
+            }
+            misses++;
+            if (store.size() >= capacity) {
+                policy.selectVictim(store).ifPresent(store::remove);
+            }
+            store.put(key, PRESENT);
+            policy.onInsert(key, PRESENT);
+        }
+    }
+
+    private final int capacity;
+    private final int sampling;
+    private final int shadowCapacity;
+    private final List<Shadow> shadows;
+    private final Consumer<String> switcher;
+    private volatile String live;
+
+    private final ArrayBlockingQueue<String> sampled = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor();
+    private long windowStart = System.currentTimeMillis();
+    private String leader;
+    private int leaderWindows;
+
+    private final LongAdder droppedSamples = new LongAdder();
+    private final LongAdder switches = new LongAdder();
+
+    public ShadowPolicySelector(int capacity, int sampling, String live, Consumer<String> switcher) {
+        this.capacity = capacity;
+        this.sampling = sampling;
+        this.shadowCapacity = Math.max(1, capacity / sampling);
+        this.live = live;
+        this.switcher = switcher;
+        this.shadows = List.of(
+            new Shadow(LRU, LruEvictionStrategy::new),
+            new Shadow(SIEVE, SieveEvictionStrategy::new)
+        );
+        worker.scheduleWithFixedDelay(BackgroundPass.logFailures(log, "Shadow policy pass", this::drain), DRAIN_MILLIS, DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Hit path: one hash for most keys, a non-blocking offer for the sampled ones
+    public void record(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        if (Math.floorMod(h ^ (h >>> 16), sampling) != 0) {
+            return;
+        }
+        if (!sampled.offer(key)) {
+            droppedSamples.increment();
+        }
+    }
+
+    // Called after every mode switch, automatic or not
+    public void setLive(String policy) {
+        this.live = policy;
+    }
+
+    public boolean matches(int capacity, int sampling) {
+        return this.capacity == capacity && this.sampling == sampling;
+    }
+
+    private void drain() {
+        String key;
+        while ((key = sampled.poll()) != null) {
+            access(key);
+        }
+        if (System.currentTimeMillis() - windowStart >= WINDOW_MILLIS) {
+            evaluate();
+        }
+    }
+
+    // Worker thread only (tests drive it directly): replays one sampled key on every shadow
+    void access(String key) {
+        for (Shadow s : shadows) {
+            s.access(key, shadowCapacity);
+        }
+    }
+
+    // Closes the current window; worker thread only, or a test with the worker shut down
+    void evaluate() {
+        windowStart = System.currentTimeMillis();
+        Shadow best = null;
+        Shadow current = null;
+        boolean enoughSamples = true;
+        for (Shadow s : shadows) {
+            long total = s.hits + s.misses;
+            enoughSamples &= total >= MIN_WINDOW_SAMPLES;
+            s.lastMissRatio = total == 0 ? -1 : (double) s.misses / total;
+            s.hits = 0;
+            s.misses = 0;
+            if (best == null || s.lastMissRatio < best.lastMissRatio) {
+                best = s;
+            }
+            if (s.name.equals(live)) {
+                current = s;
+            }
+        }
+        if (!enoughSamples || current == null) {
+            return; // too quiet to judge; keep any streak as it is
+        }
+        if (best == current || best.lastMissRatio > current.lastMissRatio - MARGIN) {
+            leader = null;
+            leaderWindows = 0;
+            return;
+        }
+        if (best.name.equals(leader)) {
+            leaderWindows++;
+        } else {
+            leader = best.name;
+            leaderWindows = 1;
+        }
+        if (leaderWindows >= WINDOWS_TO_SWITCH) {
+            leader = null;
+            leaderWindows = 0;
+            switches.increment();
+            switcher.accept(best.name);
+        }
+    }
+
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("livePolicy", live);
+        for (Shadow s : shadows) {
+            stats.put("shadowMissRatio" + s.name, s.lastMissRatio);
+        }
+        stats.put("shadowCapacity", shadowCapacity);
+        stats.put("shadowDroppedSamples", droppedSamples.sum());
+        stats.put("policySwitches", switches.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.cache.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.example.cache.backend.MockBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+
+@WebMvcTest(CacheController.class)
+@Import(MockBackend.class)
+class CacheControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private MockBackend backend;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        backend.setLatencyMillis(0);
+        mvc.perform(get("/reset")).andExpect(status().isOk());
+        mvc.perform(get("/item").param("key", "k")).andExpect(status().isOk());
+    }
+
+    @Test
+    void unknownModeIsRejectedBeforeAnythingChanges() throws Exception {
+        mvc.perform(get("/config").param("mode", "M9").param("latency", "0").param("backendConcurrency", "3"))
+            .andExpect(status().isBadRequest());
+
+        assertThat(backend.getMaxConcurrency()).isZero();
+        // Still the same M1 service, with the key loaded before
+        mvc.perform(get("/stats")).andExpect(jsonPath("$.cacheSize").value(1));
+    }
+
+    @Test
+    void unknownDistributionIsRejectedBeforeAnythingChanges() throws Exception {
+        mvc.perform(get("/config").param("mode", "M4").param("latency", "0").param("distribution", "uniform")
+                .param("backendConcurrency", "3"))
+            .andExpect(status().isBadRequest());
+
+        assertThat(backend.getMaxConcurrency()).isZero();
+        mvc.perform(get("/stats")).andExpect(jsonPath("$.cacheSize").value(1));
+    }
+}
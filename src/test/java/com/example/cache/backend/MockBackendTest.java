@@ -0,0 +1,142 @@
+package com.example.cache.backend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+
+class MockBackendTest {
+
+    private static long timeFetch(MockBackend backend) {
+        long start = System.nanoTime();
+        backend.fetchFromBackend("k");
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    @Test
+    void tailAppliesToTheDefaultDistribution() {
+        MockBackend backend = new MockBackend();
+        backend.setLatencyMillis(0);
+        backend.setTail(1.0, 50);
+
+        assertThat(timeFetch(backend)).isGreaterThanOrEqualTo(50);
+    }
+
+    @Test
+    void tailAppliesToLognormal() {
+        MockBackend backend = new MockBackend();
+        backend.setLatencyMillis(0);
+        backend.setDistribution(MockBackend.Distribution.LOGNORMAL, 0.5);
+        backend.setTail(1.0, 50);
+
+        assertThat(timeFetch(backend)).isGreaterThanOrEqualTo(50);
+    }
+
+    @Test
+    void noTailByDefault() {
+        MockBackend backend = new MockBackend();
+        backend.setLatencyMillis(0);
+
+        assertThat(timeFetch(backend)).isLessThan(50);
+    }
+
+    private static void awaitInFlight(MockBackend backend, int inFlight, int queued) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while ((backend.getInFlight() < inFlight || backend.getQueueDepth() < queued)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(backend.getInFlight()).isEqualTo(inFlight);
+        assertThat(backend.getQueueDepth()).isEqualTo(queued);
+    }
+
+    @Test
+    void bimodalSpreadsBothPeaks() {
+        MockBackend backend = new MockBackend();
+        backend.setLatencyMillis(10);
+        backend.setTail(0.5, 1_000);
+        backend.setDistribution(MockBackend.Distribution.BIMODAL, 0.2);
+
+        Set<Long> fast = new HashSet<>();
+        Set<Long> slow = new HashSet<>();
+        for (int i = 0; i < 2_000; i++) {
+            long ms = backend.sampleLatency();
+            (ms < 100 ? fast : slow).add(ms);
+        }
+        // Two clusters, each with its own spread; FIXED would give exactly {10, 1000}
+        assertThat(fast).hasSizeGreaterThan(1).allMatch(ms -> ms < 30);
+        assertThat(slow).hasSizeGreaterThan(1).allMatch(ms -> ms > 300);
+    }
+
+    @Test
+    void fixedTailIsAPointMass() {
+        MockBackend backend = new MockBackend();
+        backend.setLatencyMillis(10);
+        backend.setTail(0.5, 1_000);
+
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 2_000; i++) {
+            seen.add(backend.sampleLatency());
+        }
+        assertThat(seen).containsExactlyInAnyOrder(10L, 1_000L);
+    }
+
+    @Test
+    void callsBeyondMaxConcurrencyQueue() throws Exception {
+        MockBackend backend = new MockBackend();
+        backend.setLatencyMillis(200);
+        backend.setMaxConcurrency(2);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            long start = System.nanoTime();
+            CompletableFuture<?>[] calls = new CompletableFuture<?>[4];
+            for (int i = 0; i < calls.length; i++) {
+                calls[i] = CompletableFuture.runAsync(() -> backend.fetchFromBackend("k"), pool);
+            }
+            awaitInFlight(backend, 2, 2);
+
+            CompletableFuture.allOf(calls).get();
+            // Two waves of two
+            assertThat((System.nanoTime() - start) / 1_000_000).isGreaterThanOrEqualTo(400);
+            assertThat(backend.getQueueDepth()).isZero();
+            assertThat(backend.getInFlight()).isZero();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void loadFactorSlowsCallsThatOverlap() throws Exception {
+        MockBackend backend = new MockBackend();
+        backend.setLatencyMillis(100);
+        backend.setLoadFactor(1.0);
+        assertThat(timeFetch(backend)).isLessThan(200);
+
+        CompletableFuture<?> first = CompletableFuture.runAsync(() -> backend.fetchFromBackend("a"));
+        awaitInFlight(backend, 1, 0);
+        // Second concurrent call: 100ms * (1 + 1.0 * 1)
+        assertThat(timeFetch(backend)).isGreaterThanOrEqualTo(200);
+        first.get();
+    }
+
+    @Test
+    void errorRateFailsCallsAndCountsThem() {
+        MockBackend backend = new MockBackend();
+        backend.setLatencyMillis(0);
+        backend.setErrorRate(1.0);
+
+        assertThatThrownBy(() -> backend.fetchFromBackend("k")).isInstanceOf(BackendException.class);
+        assertThatThrownBy(() -> backend.fetchFromBackend("k")).isInstanceOf(BackendException.class);
+        assertThat(backend.getErrorCount()).isEqualTo(2);
+        assertThat(backend.getRequestCount()).isEqualTo(2);
+
+        backend.setErrorRate(0);
+        assertThat(backend.fetchFromBackend("k")).isEqualTo("value-for-k");
+        assertThat(backend.getErrorCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.cache.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.cache.backend.MockBackend;
+import com.example.cache.eviction.EvictionStrategy;
+import com.example.cache.eviction.LruEvictionStrategy;
+import com.example.cache.eviction.SieveEvictionStrategy;
+import com.example.cache.hotkeys.HeavyHitterTracker;
+import com.example.cache.refresh.NaiveTtlRefreshStrategy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class CacheServiceTest {
+
+    private static final String BODY = "{\"id\":1,\"name\":\"item\"}".repeat(100);
+    private static final Function<String, Object> FETCH = k -> "v";
+
+    private static CacheService compressingService() {
+        CacheService service = new CacheService(new LruEvictionStrategy(), new NaiveTtlRefreshStrategy(), 100, 60_000);
+        service.setPreSerialize(true);
+        service.setValueCodec(new ValueCodec(64, 0.9));
+        return service;
+    }
+
+    @Test
+    void matchingEtagSkipsInflating() throws Exception {
+        CacheService service = compressingService();
+        Function<String, Object> fetch = k -> BODY;
+        EncodedBody first = (EncodedBody) service.get("k", fetch);
+
+        EncodedBody conditional = (EncodedBody) service.get("k", fetch, first.etag);
+
+        assertThat(conditional.etag).isEqualTo(first.etag);
+        assertThat(conditional.body).isEmpty();
+        assertThat(service.stats().get("compressionNotModifiedSkips")).isEqualTo(1L);
+    }
+
+    @Test
+    void staleEtagGetsTheFullBody() throws Exception {
+        CacheService service = compressingService();
+        Function<String, Object> fetch = k -> BODY;
+        service.get("k", fetch);
+
+        EncodedBody conditional = (EncodedBody) service.get("k", fetch, "\"something-else\"");
+
+        assertThat(new String(conditional.body, StandardCharsets.UTF_8)).isEqualTo(BODY);
+        assertThat(service.stats().get("compressionNotModifiedSkips")).isEqualTo(0L);
+    }
+
+    @Test
+    void loaderProvidedTtlOverridesTheDefault() throws Exception {
+        MockBackend backend = new MockBackend();
+        backend.setLatencyMillis(0);
+        backend.setValueTtlMillis(200);
+        CacheService service = new CacheService(new LruEvictionStrategy(), new NaiveTtlRefreshStrategy(), 100, 60_000);
+        Function<String, Object> fetch = backend::fetchFromBackend;
+
+        long before = System.currentTimeMillis();
+        assertThat(service.get("k", fetch)).isEqualTo("value-for-k");
+        long expiry = service.store().get("k").expiryTime;
+
+        assertThat(expiry).isBetween(before + 200, System.currentTimeMillis() + 200);
+        service.get("k", fetch);
+        assertThat(backend.getRequestCount()).isEqualTo(1);
+
+        Thread.sleep(expiry - System.currentTimeMillis() + 20);
+        assertThat(service.get("k", fetch)).isEqualTo("value-for-k");
+        assertThat(backend.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void plainValuesKeepTheDefaultTtl() throws Exception {
+        MockBackend backend = new MockBackend();
+        backend.setLatencyMillis(0);
+        CacheService service = new CacheService(new LruEvictionStrategy(), new NaiveTtlRefreshStrategy(), 100, 60_000);
+
+        long before = System.currentTimeMillis();
+        service.get("k", backend::fetchFromBackend);
+
+        assertThat(service.store().get("k").expiryTime).isGreaterThanOrEqualTo(before + 60_000);
+    }
+
+    private static CacheService filled(EvictionStrategy policy, int keys) throws Exception {
+        CacheService service = new CacheService(policy, new NaiveTtlRefreshStrategy(), keys, 60_000);
+        for (int i = 0; i < keys; i++) {
+            service.get("k" + i, FETCH);
+        }
+        return service;
+    }
+
+    private static List<String> exported(CacheService service, List<Boolean> visited) {
+        List<String> keys = new ArrayList<>();
+        service.evictionStrategy().exportOrder((k, v) -> {
+            keys.add(k);
+            visited.add(v);
+        });
+        return keys;
+    }
+
+    @Test
+    void lruToSmallerSieveKeepsTheMostRecentInOrder() throws Exception {
+        CacheService lru = filled(new LruEvictionStrategy(), 10);
+        lru.get("k2", FETCH); // now the most recent
+
+        CacheService sieve = new CacheService(new SieveEvictionStrategy(), new NaiveTtlRefreshStrategy(), 5, 60_000);
+        assertThat(sieve.warmFrom(lru)).isEqualTo(5);
+
+        // Replayed coldest first, so the sweep starts where LRU would have evicted next
+        assertThat(exported(sieve, new ArrayList<>())).containsExactly("k6", "k7", "k8", "k9", "k2");
+        sieve.get("new", FETCH);
+        assertThat(sieve.store()).doesNotContainKey("k6").containsKeys("k7", "k2", "new");
+    }
+
+    @Test
+    void sieveToSmallerLruKeepsTheSweepOrder() throws Exception {
+        CacheService sieve = filled(new SieveEvictionStrategy(), 10);
+
+        CacheService lru = new CacheService(new LruEvictionStrategy(), new NaiveTtlRefreshStrategy(), 4, 60_000);
+        assertThat(lru.warmFrom(sieve)).isEqualTo(4);
+
+        assertThat(exported(lru, new ArrayList<>())).containsExactly("k6", "k7", "k8", "k9");
+        lru.get("new", FETCH);
+        assertThat(lru.store()).doesNotContainKey("k6").containsKeys("k7", "k8", "k9", "new");
+    }
+
+    @Test
+    void visitedBitsSurviveTheHandover() throws Exception {
+        CacheService old = filled(new SieveEvictionStrategy(), 10);
+        old.get("k7", FETCH);
+
+        CacheService sieve = new CacheService(new SieveEvictionStrategy(), new NaiveTtlRefreshStrategy(), 4, 60_000);
+        sieve.warmFrom(old);
+
+        List<Boolean> visited = new ArrayList<>();
+        assertThat(exported(sieve, visited)).containsExactly("k6", "k7", "k8", "k9");
+        assertThat(visited).containsExactly(false, true, false, false);
+
+        // k6 goes first, then the hand spares the visited k7 and takes k8
+        sieve.get("a", FETCH);
+        sieve.get("b", FETCH);
+        assertThat(sieve.store()).containsKeys("k7", "k9", "a", "b").doesNotContainKeys("k6", "k8");
+    }
+
+    @Test
+    void hotKeyRefreshWindowFollowsTheEntrysOwnTtl() throws Exception {
+        MockBackend backend = new MockBackend();
+        backend.setLatencyMillis(0);
+        backend.setValueTtlMillis(1_000);
+        // 60s default TTL would make the window 6s, i.e. the whole life of a 1s entry
+        CacheService service = new CacheService(new LruEvictionStrategy(), new NaiveTtlRefreshStrategy(), 100, 60_000);
+        service.setHotKeyTracker(new HeavyHitterTracker(16, 1, 100, 1.0), true);
+        Function<String, Object> fetch = backend::fetchFromBackend;
+        try {
+            service.get("k", fetch);
+            long expiry = service.store().get("k").expiryTime;
+
+            // Hot from the first window on, but nowhere near the last 10% of its 1s
+            while (System.currentTimeMillis() < expiry - 300) {
+                service.get("k", fetch);
+                Thread.sleep(10);
+            }
+            assertThat(service.stats().get("hotKeyRefreshes")).isEqualTo(0L);
+            assertThat(backend.getRequestCount()).isEqualTo(1);
+
+            while (System.currentTimeMillis() < expiry - 20) {
+                service.get("k", fetch);
+                Thread.sleep(10);
+            }
+            Thread.sleep(50);
+            assertThat(service.stats().get("hotKeyRefreshes")).isEqualTo(1L);
+        } finally {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.cache.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.cache.eviction.LruEvictionStrategy;
+import com.example.cache.refresh.NaiveTtlRefreshStrategy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CacheSnapshotTest {
+
+    private static final long NEVER = 3_600_000; // the schedule never fires; tests call snapshot()
+    private static final Function<String, Object> NO_BACKEND = k -> {
+        throw new AssertionError("backend called for " + k);
+    };
+
+    @TempDir
+    Path dir;
+
+    private static CacheService plainService() {
+        return new CacheService(new LruEvictionStrategy(), new NaiveTtlRefreshStrategy(), 100, 60_000);
+    }
+
+    private static CacheService encodingService() {
+        CacheService service = plainService();
+        service.setPreSerialize(true);
+        service.setValueCodec(new ValueCodec(256, 0.9));
+        return service;
+    }
+
+    private static void put(CacheService service, String key, Object value, long expiryTime) {
+        CacheEntry<Object> entry = new CacheEntry<>(value, expiryTime, 42_000);
+        service.store().put(key, entry);
+        service.evictionStrategy().onInsert(key, entry);
+    }
+
+    private static void awaitRestore(CacheSnapshot snapshot) throws InterruptedException {
+        for (int i = 0; i < 200 && (boolean) snapshot.stats().get("snapshotRestoring"); i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void stringsAndBytesComeBackOnDemand() throws Exception {
+        long expiry = System.currentTimeMillis() + 60_000;
+        CacheSnapshot before = new CacheSnapshot(dir, NEVER);
+        CacheService old = plainService();
+        before.bind(old, false);
+        put(old, "s", "text", expiry);
+        put(old, "b", new byte[] {1, 2, 3}, expiry);
+        before.close();
+
+        CacheSnapshot after = new CacheSnapshot(dir, NEVER);
+        CacheService service = plainService();
+        after.bind(service, false);
+
+        assertThat(service.get("s", NO_BACKEND)).isEqualTo("text");
+        assertThat((byte[]) service.get("b", NO_BACKEND)).containsExactly(1, 2, 3);
+        assertThat(service.store().get("s").expiryTime).isEqualTo(expiry);
+        assertThat(service.store().get("s").delta).isEqualTo(42_000);
+        assertThat(after.stats().get("snapshotRestoredOnDemand")).isEqualTo(2L);
+        assertThat(after.stats().get("snapshotRestored")).isEqualTo(0L);
+        after.close();
+    }
+
+    @Test
+    void encodedAndCompressedValuesRoundTrip() throws Exception {
+        CacheSnapshot before = new CacheSnapshot(dir, NEVER);
+        CacheService old = encodingService();
+        before.bind(old, false);
+        old.get("small", k -> "tiny");
+        old.get("large", k -> "{\"id\":1}".repeat(200));
+        EncodedBody small = (EncodedBody) old.store().get("small").value;
+        CompressedValue large = (CompressedValue) old.store().get("large").value;
+        before.close();
+
+        CacheSnapshot after = new CacheSnapshot(dir, NEVER);
+        CacheService service = encodingService();
+        after.bind(service);
+        awaitRestore(after);
+
+        EncodedBody restoredSmall = (EncodedBody) service.store().get("small").value;
+        assertThat(restoredSmall.body).isEqualTo(small.body);
+        assertThat(restoredSmall.etag).isEqualTo(small.etag);
+        assertThat(restoredSmall.contentType).isEqualTo(small.contentType);
+        CompressedValue restoredLarge = (CompressedValue) service.store().get("large").value;
+        assertThat(restoredLarge.data).isEqualTo(large.data);
+        assertThat(restoredLarge.originalLength).isEqualTo(large.originalLength);
+        assertThat(restoredLarge.string).isEqualTo(large.string);
+        assertThat(restoredLarge.etag).isEqualTo(large.etag);
+        assertThat(((EncodedBody) service.get("large", NO_BACKEND)).etag).isEqualTo(large.etag);
+        after.close();
+    }
+
+    @Test
+    void backgroundRestoreKeepsTheEvictionOrder() throws Exception {
+        long expiry = System.currentTimeMillis() + 60_000;
+        CacheSnapshot before = new CacheSnapshot(dir, NEVER);
+        CacheService old = plainService();
+        before.bind(old, false);
+        put(old, "a", "A", expiry);
+        put(old, "b", "B", expiry);
+        put(old, "c", "C", expiry);
+        old.evictionStrategy().onHit("a", old.store().get("a"));
+        before.close();
+
+        CacheSnapshot after = new CacheSnapshot(dir, NEVER);
+        CacheService service = plainService();
+        after.bind(service);
+        awaitRestore(after);
+
+        assertThat(after.stats().get("snapshotRestored")).isEqualTo(3L);
+        assertThat(service.evictionStrategy().selectVictim(service.store())).contains("b");
+        assertThat(service.evictionStrategy().selectVictim(service.store())).contains("c");
+        after.close();
+    }
+
+    @Test
+    void entriesThatExpiredWhileDownAreNotRestored() throws Exception {
+        CacheSnapshot before = new CacheSnapshot(dir, NEVER);
+        CacheService old = plainService();
+        before.bind(old, false);
+        put(old, "short", "S", System.currentTimeMillis() + 200);
+        put(old, "long", "L", System.currentTimeMillis() + 60_000);
+        before.close();
+        Thread.sleep(250);
+
+        CacheSnapshot after = new CacheSnapshot(dir, NEVER);
+        CacheService service = plainService();
+        after.bind(service);
+        awaitRestore(after);
+
+        assertThat(service.store()).containsKey("long").doesNotContainKey("short");
+        after.close();
+    }
+
+    @Test
+    void rewrittenDataIsCompactedIntoANewGeneration() throws Exception {
+        long expiry = System.currentTimeMillis() + 60_000;
+        CacheSnapshot snapshot = new CacheSnapshot(dir, NEVER);
+        CacheService service = plainService();
+        snapshot.bind(service, false);
+        byte[] megabyte = new byte[1 << 20];
+        // Two versions of 6MB of values: the file is then 12MB with only 6MB live
+        for (int version = 0; version < 2; version++) {
+            for (int i = 0; i < 6; i++) {
+                megabyte[0] = (byte) version;
+                put(service, "k" + i, megabyte.clone(), expiry);
+            }
+            snapshot.snapshot();
+        }
+        assertThat(Files.exists(dir.resolve("data-0"))).isTrue();
+
+        snapshot.snapshot();
+
+        assertThat(Files.exists(dir.resolve("data-0"))).isFalse();
+        assertThat(Files.size(dir.resolve("data-1"))).isLessThan(12L << 20);
+        snapshot.close();
+
+        CacheSnapshot after = new CacheSnapshot(dir, NEVER);
+        CacheService restored = plainService();
+        after.bind(restored, false);
+        assertThat(((byte[]) restored.get("k5", NO_BACKEND))[0]).isEqualTo((byte) 1);
+        after.close();
+    }
+}
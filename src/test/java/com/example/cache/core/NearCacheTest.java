@@ -0,0 +1,85 @@
+package com.example.cache.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.cache.eviction.LruEvictionStrategy;
+import com.example.cache.refresh.NaiveTtlRefreshStrategy;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class NearCacheTest {
+
+    @Test
+    void servesAdmittedValueUntilItsOwnTtl() {
+        NearCache l1 = new NearCache(16, 1_000);
+        l1.admit("k", "v", 60_000, 0);
+
+        assertThat(l1.get("k", 999)).isEqualTo("v");
+        assertThat(l1.get("k", 1_000)).isNull();
+        assertThat(l1.getHits()).isEqualTo(1);
+        assertThat(l1.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void expiryIsCappedAtTheL2Expiry() {
+        NearCache l1 = new NearCache(16, 1_000);
+        l1.admit("k", "v", 300, 0);
+
+        assertThat(l1.get("k", 299)).isEqualTo("v");
+        assertThat(l1.get("k", 300)).isNull();
+    }
+
+    @Test
+    void ignoresAlreadyExpiredAndNullValues() {
+        NearCache l1 = new NearCache(16, 1_000);
+        l1.admit("expired", "v", 100, 100);
+        l1.admit("null", null, 60_000, 0);
+
+        assertThat(l1.get("expired", 100)).isNull();
+        assertThat(l1.get("null", 0)).isNull();
+    }
+
+    @Test
+    void slotCountRoundsUpToAPowerOfTwo() {
+        assertThat(new NearCache(1, 1_000).slotCount()).isEqualTo(2);
+        assertThat(new NearCache(16, 1_000).slotCount()).isEqualTo(16);
+        assertThat(new NearCache(17, 1_000).slotCount()).isEqualTo(32);
+    }
+
+    @Test
+    void collidingKeyReplacesTheSlotWithoutServingTheWrongValue() {
+        NearCache l1 = new NearCache(1, 1_000); // two slots, so three keys must share
+        l1.admit("a", "A", 60_000, 0);
+        l1.admit("b", "B", 60_000, 0);
+        l1.admit("c", "C", 60_000, 0);
+
+        for (String key : new String[] {"a", "b", "c"}) {
+            Object v = l1.get(key, 1);
+            assertThat(v == null || v.equals(key.toUpperCase())).isTrue();
+        }
+    }
+
+    @Test
+    void clearDropsEverything() {
+        NearCache l1 = new NearCache(16, 1_000);
+        l1.admit("k", "v", 60_000, 0);
+        l1.clear();
+
+        assertThat(l1.get("k", 1)).isNull();
+    }
+
+    @Test
+    void cacheServiceAdmitsOnlyOnAnL2Hit() throws Exception {
+        CacheService service = new CacheService(new LruEvictionStrategy(), new NaiveTtlRefreshStrategy(), 100, 60_000);
+        NearCache l1 = new NearCache(16, 60_000);
+        service.setNearCache(l1);
+        AtomicInteger loads = new AtomicInteger();
+
+        service.get("k", () -> "v" + loads.incrementAndGet()); // L2 miss: not admitted
+        assertThat(l1.get("k", System.currentTimeMillis())).isNull();
+
+        service.get("k", () -> "v" + loads.incrementAndGet()); // L2 hit: admitted
+        assertThat(l1.get("k", System.currentTimeMillis())).isEqualTo("v1");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+}
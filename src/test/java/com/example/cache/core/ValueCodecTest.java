@@ -0,0 +1,94 @@
+package com.example.cache.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ValueCodecTest {
+
+    private static final String COMPRESSIBLE = "{\"id\":1,\"name\":\"item\"}".repeat(100);
+
+    @Test
+    void stringRoundTripsThroughDeflate() {
+        ValueCodec codec = new ValueCodec(64, 0.9);
+
+        Object stored = codec.encode(COMPRESSIBLE);
+
+        assertThat(stored).isInstanceOf(CompressedValue.class);
+        assertThat(((CompressedValue) stored).data.length).isLessThan(COMPRESSIBLE.length());
+        assertThat(codec.decode(stored)).isEqualTo(COMPRESSIBLE);
+        assertThat(codec.stats().get("compressedValues")).isEqualTo(1L);
+    }
+
+    @Test
+    void bytesRoundTripAsBytes() {
+        ValueCodec codec = new ValueCodec(64, 0.9);
+        byte[] raw = COMPRESSIBLE.getBytes(StandardCharsets.UTF_8);
+
+        Object decoded = codec.decode(codec.encode(raw));
+
+        assertThat(decoded).isInstanceOf(byte[].class);
+        assertThat((byte[]) decoded).isEqualTo(raw);
+    }
+
+    @Test
+    void encodedBodyKeepsItsEtagAndContentType() {
+        ValueCodec codec = new ValueCodec(64, 0.9);
+        EncodedBody body = EncodedBody.of(COMPRESSIBLE);
+
+        Object stored = codec.encode(body);
+        EncodedBody decoded = (EncodedBody) codec.decode(stored);
+
+        assertThat(((CompressedValue) stored).etag).isEqualTo(body.etag);
+        assertThat(decoded.etag).isEqualTo(body.etag);
+        assertThat(decoded.contentType).isEqualTo(body.contentType);
+        assertThat(decoded.body).isEqualTo(body.body);
+    }
+
+    @Test
+    void valuesBelowTheThresholdAreStoredAsIs() {
+        ValueCodec codec = new ValueCodec(4096, 0.9);
+
+        assertThat(codec.encode(COMPRESSIBLE)).isSameAs(COMPRESSIBLE);
+        assertThat(codec.encode(42)).isEqualTo(42);
+    }
+
+    @Test
+    void incompressibleValuesAreStoredAsIs() {
+        ValueCodec codec = new ValueCodec(64, 0.9);
+        byte[] noise = new byte[4096];
+        new Random(1).nextBytes(noise);
+
+        assertThat(codec.encode(noise)).isSameAs(noise);
+        assertThat(codec.stats().get("compressionSkippedPoorRatio")).isEqualTo(1L);
+    }
+
+    @Test
+    void decodePassesPlainValuesThrough() {
+        ValueCodec codec = new ValueCodec(64, 0.9);
+
+        assertThat(codec.decode("plain")).isEqualTo("plain");
+    }
+
+    @Test
+    void truncatedDataFailsInsteadOfSpinning() {
+        ValueCodec codec = new ValueCodec(64, 0.9);
+        CompressedValue cv = (CompressedValue) codec.encode(COMPRESSIBLE);
+        CompressedValue truncated = new CompressedValue(Arrays.copyOf(cv.data, cv.data.length / 2), cv.originalLength, true);
+
+        assertThatThrownBy(() -> codec.decode(truncated)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void recordedLengthLongerThanTheDataFails() {
+        ValueCodec codec = new ValueCodec(64, 0.9);
+        CompressedValue cv = (CompressedValue) codec.encode(COMPRESSIBLE);
+        CompressedValue wrongLength = new CompressedValue(cv.data, cv.originalLength + 10, true);
+
+        assertThatThrownBy(() -> codec.decode(wrongLength)).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.cache.eviction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.cache.core.CacheEntry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncBatchedEvictionStrategyTest {
+
+    private final ConcurrentHashMap<String, CacheEntry<Object>> store = new ConcurrentHashMap<>();
+    private AsyncBatchedEvictionStrategy strategy;
+
+    @AfterEach
+    void tearDown() {
+        strategy.shutdown();
+    }
+
+    private void insert(String key) {
+        CacheEntry<Object> entry = new CacheEntry<>(key, Long.MAX_VALUE, 0);
+        store.put(key, entry);
+        strategy.onInsert(key, entry);
+    }
+
+    private void awaitSize(int size) throws InterruptedException {
+        for (int i = 0; i < 100 && store.size() != size; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void trimsToTheLowWatermarkOncePastTheHighOne() throws Exception {
+        strategy = new AsyncBatchedEvictionStrategy(new LruEvictionStrategy(), store, 10, 8);
+        for (int i = 0; i < 10; i++) {
+            insert("k" + i);
+        }
+        Thread.sleep(100);
+        assertThat(store).hasSize(10); // at the high watermark is still fine
+
+        insert("k10");
+        awaitSize(8);
+
+        assertThat(store).hasSize(8);
+        // LRU delegate: the three oldest go
+        assertThat(store).doesNotContainKeys("k0", "k1", "k2");
+        assertThat(strategy.stats().get("evictionBatchedVictims")).isEqualTo(3L);
+    }
+
+    @Test
+    void hitsReplayedBeforeTrimmingProtectRecentKeys() throws Exception {
+        strategy = new AsyncBatchedEvictionStrategy(new LruEvictionStrategy(), store, 4, 3);
+        for (int i = 0; i < 4; i++) {
+            insert("k" + i);
+        }
+        strategy.onHit("k0", store.get("k0"));
+        insert("k4");
+        awaitSize(3);
+
+        assertThat(store).containsKeys("k0", "k3", "k4");
+    }
+
+    @Test
+    void newWatermarksApplyOnTheNextPass() throws Exception {
+        strategy = new AsyncBatchedEvictionStrategy(new LruEvictionStrategy(), store, 100, 90);
+        for (int i = 0; i < 50; i++) {
+            insert("k" + i);
+        }
+        strategy.setWatermarks(20, 10);
+        awaitSize(10);
+
+        assertThat(store).hasSize(10);
+    }
+
+    @Test
+    void insertBurstNeverQueuesPastTheBound() {
+        strategy = new AsyncBatchedEvictionStrategy(new LruEvictionStrategy(), store, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        for (int i = 0; i < 200_000; i++) {
+            insert("k" + i);
+        }
+
+        assertThat((int) strategy.stats().get("evictionPendingEvents")).isLessThanOrEqualTo(64 * 1024);
+    }
+
+    @Test
+    void fullQueueStallsTheWriterUntilTheMaintenanceThreadDrains() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 100_000; i++) {
+                insert("k" + i);
+            }
+        });
+        // Holds the maintenance thread on the first replayed insert, and fails if a writer replays
+        EvictionStrategy delegate = new LruEvictionStrategy() {
+            @Override
+            public void onInsert(String key, CacheEntry<?> entry) {
+                if (Thread.currentThread() == writer) {
+                    throw new AssertionError("delegate called on the request thread");
+                }
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onInsert(key, entry);
+            }
+        };
+        strategy = new AsyncBatchedEvictionStrategy(delegate, store, 80_000, 70_000);
+        writer.start();
+        for (int i = 0; i < 100 && (long) strategy.stats().get("evictionStalledInserts") == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertThat((long) strategy.stats().get("evictionStalledInserts")).isPositive();
+        assertThat(writer.isAlive()).isTrue();
+        assertThat((int) strategy.stats().get("evictionPendingEvents")).isLessThanOrEqualTo(64 * 1024 + 1);
+
+        release.countDown();
+        writer.join(5_000);
+        awaitSize(70_000);
+        assertThat(writer.isAlive()).isFalse();
+        assertThat(store).hasSize(70_000);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.cache.eviction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.cache.core.CacheEntry;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+class ExportOrderTest {
+
+    private static final int KEYS = 3 * LruEvictionStrategy.EXPORT_CHUNK + 17;
+    private static final CacheEntry<Object> ENTRY = new CacheEntry<>("v", Long.MAX_VALUE, 0);
+
+    private static List<String> keys() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < KEYS; i++) {
+            keys.add("k" + i);
+        }
+        return keys;
+    }
+
+    @Test
+    void lruExportsEldestFirstAcrossChunks() {
+        LruEvictionStrategy lru = new LruEvictionStrategy();
+        keys().forEach(k -> lru.onInsert(k, ENTRY));
+        lru.onHit("k0", ENTRY);
+
+        List<String> exported = new ArrayList<>();
+        lru.exportOrder((k, visited) -> exported.add(k));
+
+        List<String> expected = keys();
+        expected.remove("k0");
+        expected.add("k0");
+        assertThat(exported).isEqualTo(expected);
+    }
+
+    @Test
+    void lruExportSurvivesChangesBetweenChunks() {
+        LruEvictionStrategy lru = new LruEvictionStrategy();
+        ConcurrentHashMap<String, CacheEntry<Object>> store = new ConcurrentHashMap<>();
+        keys().forEach(k -> {
+            store.put(k, ENTRY);
+            lru.onInsert(k, ENTRY);
+        });
+
+        Set<String> exported = new LinkedHashSet<>();
+        lru.exportOrder((k, visited) -> {
+            if (exported.isEmpty()) {
+                // Runs outside the lock, as a request thread would
+                lru.onHit("k1", ENTRY);                  // already exported: moves to the end
+                lru.onHit("k" + (KEYS - 1), ENTRY);      // not yet exported
+                store.remove("k" + (KEYS - 2));
+                lru.selectVictim(store);                 // evicts k0, the eldest
+                lru.onInsert("new", ENTRY);
+            }
+            exported.add(k);
+        });
+
+        assertThat(exported).contains("k1", "k" + (KEYS - 1), "new");
+        assertThat(exported).hasSizeGreaterThanOrEqualTo(KEYS - 1);
+    }
+
+    @Test
+    void sieveExportsInSweepOrderAcrossChunks() {
+        SieveEvictionStrategy sieve = new SieveEvictionStrategy();
+        ConcurrentHashMap<String, CacheEntry<Object>> store = new ConcurrentHashMap<>();
+        keys().forEach(k -> {
+            store.put(k, ENTRY);
+            sieve.onInsert(k, ENTRY);
+        });
+        sieve.onHit("k5", ENTRY);
+
+        List<String> exported = new ArrayList<>();
+        List<Boolean> visited = new ArrayList<>();
+        sieve.exportOrder((k, v) -> {
+            exported.add(k);
+            visited.add(v);
+        });
+
+        // No sweep yet: the hand starts at the tail, i.e. the oldest insert
+        assertThat(exported).isEqualTo(keys());
+        assertThat(visited.get(5)).isTrue();
+        assertThat(visited.stream().filter(v -> v).count()).isEqualTo(1);
+    }
+
+    @Test
+    void sieveExportStopsOnceWhenItsStartIsEvicted() {
+        SieveEvictionStrategy sieve = new SieveEvictionStrategy();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 3 * SieveEvictionStrategy.EXPORT_CHUNK + 17; i++) {
+            keys.add("k" + i);
+            sieve.onInsert("k" + i, ENTRY);
+        }
+
+        List<String> exported = new ArrayList<>();
+        sieve.exportOrder((k, v) -> {
+            if (exported.isEmpty()) {
+                // The hand is on k0, where the export started; evicting it used to make the export wrap forever
+                assertThat(sieve.selectVictim(new ConcurrentHashMap<>())).contains("k0");
+            }
+            exported.add(k);
+        });
+
+        assertThat(exported).isEqualTo(keys);
+    }
+
+    @Test
+    void sieveExportReportsEachSurvivorOnceUnderConcurrentEviction() throws Exception {
+        SieveEvictionStrategy sieve = new SieveEvictionStrategy();
+        ConcurrentHashMap<String, CacheEntry<Object>> store = new ConcurrentHashMap<>();
+        int keys = 20 * SieveEvictionStrategy.EXPORT_CHUNK;
+        for (int i = 0; i < keys; i++) {
+            store.put("k" + i, ENTRY);
+            sieve.onInsert("k" + i, ENTRY);
+            if (i % 3 == 0) {
+                sieve.onHit("k" + i, ENTRY);
+            }
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread evictor = new Thread(() -> {
+            while (running.get() && store.size() > keys / 2) {
+                sieve.selectVictim(store).ifPresent(store::remove);
+                sieve.onHit("k" + ThreadLocalRandom.current().nextInt(keys), ENTRY);
+            }
+        });
+        evictor.start();
+        List<String> exported = new ArrayList<>();
+        try {
+            sieve.exportOrder((k, v) -> exported.add(k));
+        } finally {
+            running.set(false);
+            evictor.join();
+        }
+
+        assertThat(new HashSet<>(exported)).hasSameSizeAs(exported);
+        assertThat(exported).containsAll(store.keySet());
+    }
+}
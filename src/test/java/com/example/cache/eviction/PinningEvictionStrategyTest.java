@@ -0,0 +1,69 @@
+package com.example.cache.eviction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.cache.core.CacheEntry;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+
+class PinningEvictionStrategyTest {
+
+    private final ConcurrentHashMap<String, CacheEntry<Object>> store = new ConcurrentHashMap<>();
+    private final Set<String> pinned = new HashSet<>();
+
+    private PinningEvictionStrategy strategy(EvictionStrategy delegate, String... keys) {
+        PinningEvictionStrategy s = new PinningEvictionStrategy(delegate, pinned::contains);
+        for (String key : keys) {
+            CacheEntry<Object> entry = new CacheEntry<>(key, Long.MAX_VALUE, 0);
+            store.put(key, entry);
+            s.onInsert(key, entry);
+        }
+        return s;
+    }
+
+    private String evict(EvictionStrategy s) {
+        String victim = s.selectVictim(store).orElseThrow();
+        store.remove(victim);
+        return victim;
+    }
+
+    @Test
+    void pinnedKeyIsSkippedByLru() {
+        PinningEvictionStrategy s = strategy(new LruEvictionStrategy(), "a", "b", "c");
+        pinned.add("a");
+
+        assertThat(evict(s)).isEqualTo("b");
+        // a went back as most recent, so c is next
+        assertThat(evict(s)).isEqualTo("c");
+    }
+
+    @Test
+    void pinnedKeyIsSkippedBySieve() {
+        PinningEvictionStrategy s = strategy(new SieveEvictionStrategy(), "a", "b", "c");
+        pinned.add("a");
+
+        assertThat(evict(s)).isEqualTo("b");
+        assertThat(store).containsKey("a");
+    }
+
+    @Test
+    void unpinnedKeyIsEvictableAgain() {
+        PinningEvictionStrategy s = strategy(new LruEvictionStrategy(), "a", "b", "c");
+        pinned.add("a");
+        assertThat(evict(s)).isEqualTo("b");
+
+        pinned.clear();
+        assertThat(evict(s)).isEqualTo("c");
+        assertThat(evict(s)).isEqualTo("a");
+    }
+
+    @Test
+    void allPinnedStillEvictsSomething() {
+        PinningEvictionStrategy s = strategy(new LruEvictionStrategy(), "a", "b", "c");
+        pinned.addAll(Set.of("a", "b", "c"));
+
+        assertThat(s.selectVictim(store)).isPresent();
+    }
+}
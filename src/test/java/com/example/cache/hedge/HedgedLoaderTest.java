@@ -0,0 +1,82 @@
+package com.example.cache.hedge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.cache.limit.LoadShedException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class HedgedLoaderTest {
+
+    private final HedgedLoader loader = new HedgedLoader(false, 95.0);
+    private final CountDownLatch backend = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        backend.countDown();
+        loader.shutdown();
+    }
+
+    private static long inMillis(long millis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private Supplier<Object> stuck() {
+        return () -> {
+            try {
+                backend.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "late";
+        };
+    }
+
+    @Test
+    void withoutHedgingOrDeadlineLoadsOnTheCallersThread() {
+        Thread caller = Thread.currentThread();
+
+        Object value = loader.load("k", () -> Thread.currentThread() == caller, Long.MAX_VALUE);
+
+        assertThat(value).isEqualTo(true);
+    }
+
+    @Test
+    void deadlineGivesUpButHandsOverTheRunningLoad() throws Exception {
+        DeadlineExceededException e = null;
+        try {
+            loader.load("k", stuck(), inMillis(10));
+        } catch (DeadlineExceededException thrown) {
+            e = thrown;
+        }
+        assertThat(e).isNotNull();
+        assertThat(loader.stats().get("abandonedLoads")).isEqualTo(1);
+
+        backend.countDown();
+        assertThat(e.getPending().get(1, TimeUnit.SECONDS)).isEqualTo("late");
+        assertThat(loader.stats().get("abandonedLoads")).isEqualTo(0);
+    }
+
+    @Test
+    void shedsOnceTooManyAbandonedLoadsAreStillRunning() {
+        for (int i = 0; i < 100; i++) {
+            assertThatThrownBy(() -> loader.load("k", stuck(), inMillis(1)))
+                .isInstanceOf(DeadlineExceededException.class);
+        }
+
+        assertThatThrownBy(() -> loader.load("k", () -> "v", inMillis(1_000)))
+            .isInstanceOf(LoadShedException.class);
+        assertThat(loader.stats().get("abandonedLoadsShed")).isEqualTo(1L);
+    }
+
+    @Test
+    void loaderExceptionsSurfaceUnwrapped() {
+        assertThatThrownBy(() -> loader.load("k", () -> {
+            throw new IllegalStateException("boom");
+        }, inMillis(1_000))).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.cache.hotkeys;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class HeavyHitterTrackerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    // No sampling and a hand-driven clock, so every count is exact; rate = count / 2s with 1s windows
+    private HeavyHitterTracker tracker(int counters, double hotRate) {
+        return new HeavyHitterTracker(counters, 1, 1_000, hotRate, now::get);
+    }
+
+    private static void record(HeavyHitterTracker t, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            t.record(key);
+        }
+    }
+
+    @Test
+    void countsStayWithinSpaceSavingBounds() {
+        HeavyHitterTracker t = tracker(10, 1_000);
+        Map<String, Integer> truth = new HashMap<>();
+        // 3 heavy keys at 500 each among 3000 one-off keys: N = 4500, N / counters = 450
+        for (int i = 0; i < 3_000; i++) {
+            t.record("s" + i);
+            truth.merge("s" + i, 1, Integer::sum);
+            if (i % 2 == 0) {
+                String heavy = "h" + (i / 2 % 3);
+                t.record(heavy);
+                truth.merge(heavy, 1, Integer::sum);
+            }
+        }
+
+        List<HeavyHitterTracker.HotKey> top = t.topK(10);
+        assertThat(top).hasSize(10);
+        for (HeavyHitterTracker.HotKey k : top) {
+            int actual = truth.get(k.key);
+            assertThat(k.count).isGreaterThanOrEqualTo(actual);
+            assertThat(k.count - k.error).isLessThanOrEqualTo(actual);
+        }
+        // Anything more frequent than N / counters is guaranteed a counter
+        assertThat(top.subList(0, 3)).extracting(k -> k.key).containsExactlyInAnyOrder("h0", "h1", "h2");
+    }
+
+    @Test
+    void keyTurnsHotAtTheWindowBoundary() {
+        HeavyHitterTracker t = tracker(16, 10);
+        record(t, "a", 100); // 50 req/s
+        record(t, "b", 10);  // 5 req/s
+        assertThat(t.isHot("a")).isFalse();
+
+        now.addAndGet(1_000);
+        assertThat(t.isHot("a")).isTrue();
+        assertThat(t.isHot("b")).isFalse();
+    }
+
+    @Test
+    void quietKeyCoolsDownWithoutFurtherTraffic() {
+        HeavyHitterTracker t = tracker(16, 10);
+        record(t, "a", 100);
+        now.addAndGet(1_000);
+        assertThat(t.isHot("a")).isTrue();
+
+        // Halved every window: 50 -> 25 -> 12 -> 6 (3 req/s); no record() in between
+        now.addAndGet(1_000);
+        assertThat(t.isHot("a")).isTrue();
+        now.addAndGet(1_000);
+        assertThat(t.isHot("a")).isTrue();
+        now.addAndGet(1_000);
+        assertThat(t.isHot("a")).isFalse();
+    }
+
+    @Test
+    void idleWindowsAllDecay() {
+        HeavyHitterTracker t = tracker(16, 10);
+        record(t, "a", 100);
+        now.addAndGet(1_000);
+        assertThat(t.isHot("a")).isTrue();
+
+        // Three windows in one step decay as much as three separate rolls
+        now.addAndGet(3_000);
+        assertThat(t.isHot("a")).isFalse();
+        assertThat(t.topK(1).get(0).count).isEqualTo(6);
+    }
+
+    @Test
+    void thresholdChangeAppliesFromTheNextWindow() {
+        HeavyHitterTracker t = tracker(16, 100);
+        record(t, "a", 100);
+        now.addAndGet(1_000);
+        assertThat(t.isHot("a")).isFalse();
+
+        t.setHotRateThreshold(10);
+        record(t, "a", 50);
+        now.addAndGet(1_000);
+        assertThat(t.isHot("a")).isTrue();
+    }
+}
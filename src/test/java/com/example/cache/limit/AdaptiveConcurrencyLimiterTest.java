@@ -0,0 +1,107 @@
+package com.example.cache.limit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = 10_000_000; // 10ms
+
+    private static int limit(AdaptiveConcurrencyLimiter limiter) {
+        return (int) limiter.stats().get("loadLimit");
+    }
+
+    // One load at a time, so the limit alone decides what happens
+    private static void complete(AdaptiveConcurrencyLimiter limiter, long latencyNanos, boolean success) {
+        assertThat(limiter.tryAcquire()).isTrue();
+        limiter.release(latencyNanos, success);
+    }
+
+    @Test
+    void fastLoadsGrowTheLimitByAboutOnePerRoundTrip() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+        for (int i = 0; i < 10; i++) {
+            complete(limiter, FAST, true);
+        }
+        assertThat(limit(limiter)).isEqualTo(10); // 10 + 10 * ~0.1, just under 11
+
+        complete(limiter, FAST, true);
+        assertThat(limit(limiter)).isEqualTo(11);
+    }
+
+    @Test
+    void failuresCutTheLimitMultiplicatively() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+        complete(limiter, FAST, false);
+        assertThat(limit(limiter)).isEqualTo(9);
+
+        complete(limiter, FAST, false);
+        assertThat(limit(limiter)).isEqualTo(8); // 8.1
+    }
+
+    @Test
+    void loadsSlowerThanTwiceTheBaselineCutTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+        complete(limiter, FAST, true);
+        complete(limiter, 3 * FAST, true);
+
+        assertThat(limit(limiter)).isEqualTo(9);
+    }
+
+    @Test
+    void limitStaysWithinMinAndMax() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 2, 3);
+        for (int i = 0; i < 20; i++) {
+            complete(limiter, FAST, false);
+        }
+        assertThat(limit(limiter)).isEqualTo(2);
+
+        for (int i = 0; i < 100; i++) {
+            complete(limiter, FAST, true);
+        }
+        assertThat(limit(limiter)).isEqualTo(3);
+    }
+
+    @Test
+    void tryAcquireFailsAtTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+        assertThat(limiter.stats().get("loadsInFlight")).isEqualTo(2);
+        assertThat(limiter.stats().get("peakLoadsInFlight")).isEqualTo(2);
+    }
+
+    @Test
+    void acquireTimesOutAndCountsAShed() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10);
+        assertThat(limiter.tryAcquire()).isTrue();
+
+        assertThat(limiter.acquire(20)).isFalse();
+        limiter.recordShed();
+
+        assertThat(limiter.stats().get("loadsShed")).isEqualTo(2L);
+    }
+
+    @Test
+    void acquireWakesUpWhenASlotIsReleased() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10);
+        assertThat(limiter.tryAcquire()).isTrue();
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire(5_000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        limiter.release(FAST, true);
+
+        assertThat(waiter.get(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(limiter.stats().get("loadsShed")).isEqualTo(0L);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.cache.memcached;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.example.cache.api.CacheController;
+import com.example.cache.core.EncodedBody;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MemcachedServerTest {
+
+    private final CacheController cache = mock(CacheController.class);
+    private MemcachedServer server;
+    private int port;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new MemcachedServer(cache, "127.0.0.1", port);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.stop();
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        socket.setSoTimeout(2_000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String text) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    // Reads until the reply ends with terminator (or the server closes the connection)
+    private static String readUntil(Socket socket, String terminator) throws IOException {
+        InputStream in = socket.getInputStream();
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        while (!buf.toString(StandardCharsets.UTF_8).endsWith(terminator)) {
+            int b = in.read();
+            if (b < 0) {
+                break;
+            }
+            buf.write(b);
+        }
+        return buf.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String roundTrip(Socket socket, String command) throws IOException {
+        send(socket, command);
+        return readUntil(socket, "END\r\n");
+    }
+
+    @Test
+    void getReturnsTheValue() throws Exception {
+        when(cache.lookup("k")).thenReturn("hello");
+        try (Socket socket = connect()) {
+            assertThat(roundTrip(socket, "get k\r\n")).isEqualTo("VALUE k 0 5\r\nhello\r\nEND\r\n");
+        }
+    }
+
+    @Test
+    void missIsLeftOutOfTheReply() throws Exception {
+        try (Socket socket = connect()) {
+            assertThat(roundTrip(socket, "get nothing\r\n")).isEqualTo("END\r\n");
+        }
+    }
+
+    @Test
+    void multiKeyGetAnswersHitsInRequestOrder() throws Exception {
+        when(cache.lookup("a")).thenReturn("1");
+        when(cache.lookup("c")).thenReturn("333");
+        try (Socket socket = connect()) {
+            assertThat(roundTrip(socket, "get a b  c\r\n"))
+                .isEqualTo("VALUE a 0 1\r\n1\r\nVALUE c 0 3\r\n333\r\nEND\r\n");
+        }
+    }
+
+    @Test
+    void valueLengthIsCountedInUtf8Bytes() throws Exception {
+        when(cache.lookup("u")).thenReturn("h\u00e9llo \u20ac \uD83D\uDE00");
+        try (Socket socket = connect()) {
+            String reply = roundTrip(socket, "get u\r\n");
+            int expected = "h\u00e9llo \u20ac \uD83D\uDE00".getBytes(StandardCharsets.UTF_8).length;
+            assertThat(reply).isEqualTo("VALUE u 0 " + expected + "\r\nh\u00e9llo \u20ac \uD83D\uDE00\r\nEND\r\n");
+        }
+    }
+
+    @Test
+    void preSerializedBodiesAreSentAsStored() throws Exception {
+        when(cache.lookup("e")).thenReturn(EncodedBody.of("{\"id\":1}"));
+        try (Socket socket = connect()) {
+            assertThat(roundTrip(socket, "get e\r\n")).isEqualTo("VALUE e 0 8\r\n{\"id\":1}\r\nEND\r\n");
+        }
+    }
+
+    @Test
+    void getsCasFollowsTheValueContent() throws Exception {
+        when(cache.lookup("k")).thenReturn("v1", "v1", "v2");
+        try (Socket socket = connect()) {
+            String first = roundTrip(socket, "gets k\r\n");
+            String second = roundTrip(socket, "gets k\r\n");
+            String changed = roundTrip(socket, "gets k\r\n");
+
+            assertThat(first).matches("VALUE k 0 2 \\d+\r\nv1\r\nEND\r\n");
+            assertThat(second).isEqualTo(first);
+            assertThat(cas(changed)).isNotEqualTo(cas(first));
+        }
+    }
+
+    private static String cas(String reply) {
+        return reply.substring(0, reply.indexOf("\r\n")).split(" ")[4];
+    }
+
+    @Test
+    void pipelinedCommandsSplitAcrossReadsAreAnsweredInOrder() throws Exception {
+        when(cache.lookup("a")).thenReturn("A");
+        when(cache.lookup("b")).thenReturn("B");
+        try (Socket socket = connect()) {
+            send(socket, "get a\r\nge");
+            Thread.sleep(100);
+            send(socket, "t b\r\nversion\r\nget a\r\n");
+
+            assertThat(readUntil(socket, "END\r\n")).isEqualTo("VALUE a 0 1\r\nA\r\nEND\r\n");
+            assertThat(readUntil(socket, "END\r\n")).isEqualTo("VALUE b 0 1\r\nB\r\nEND\r\n");
+            assertThat(readUntil(socket, "\r\n")).isEqualTo("VERSION caching-middleware\r\n");
+            assertThat(readUntil(socket, "END\r\n")).isEqualTo("VALUE a 0 1\r\nA\r\nEND\r\n");
+        }
+    }
+
+    @Test
+    void unknownCommandIsAnError() throws Exception {
+        try (Socket socket = connect()) {
+            send(socket, "set k 0 0 1\r\n");
+            assertThat(readUntil(socket, "\r\n")).isEqualTo("ERROR\r\n");
+        }
+    }
+
+    @Test
+    void overLongLineIsRejectedAndClosed() throws Exception {
+        try (Socket socket = connect()) {
+            send(socket, "get " + "k".repeat(9_000));
+            assertThat(readUntil(socket, "\r\n")).isEqualTo("CLIENT_ERROR line too long\r\n");
+            assertThat(socket.getInputStream().read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void quitClosesTheConnection() throws Exception {
+        try (Socket socket = connect()) {
+            send(socket, "quit\r\n");
+            assertThat(socket.getInputStream().read()).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void clientVanishingMidRequestDoesNotHurtOthers() throws Exception {
+        when(cache.lookup("slow")).thenAnswer(inv -> {
+            Thread.sleep(200);
+            return "late";
+        });
+        when(cache.lookup("k")).thenReturn("v");
+        Socket gone = connect();
+        send(gone, "get slow\r\n");
+        gone.close();
+        Thread.sleep(300); // the reply to the closed socket has been attempted by now
+
+        try (Socket socket = connect()) {
+            assertThat(roundTrip(socket, "get k\r\n")).isEqualTo("VALUE k 0 1\r\nv\r\nEND\r\n");
+        }
+    }
+
+    @Test
+    void lookupFailureIsAServerError() throws Exception {
+        when(cache.lookup("bad")).thenThrow(new IllegalStateException("boom"));
+        try (Socket socket = connect()) {
+            send(socket, "get bad\r\n");
+            assertThat(readUntil(socket, "\r\n")).isEqualTo("SERVER_ERROR IllegalStateException\r\n");
+        }
+    }
+}
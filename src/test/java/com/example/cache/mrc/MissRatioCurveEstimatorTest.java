@@ -0,0 +1,122 @@
+package com.example.cache.mrc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class MissRatioCurveEstimatorTest {
+
+    private final List<MissRatioCurveEstimator> estimators = new ArrayList<>();
+
+    // Histogram buckets are 4 x capacity / 1024 wide: capacity 256 gives exact 1-key buckets.
+    // The worker is stopped so only the test feeds references.
+    private MissRatioCurveEstimator estimator(int capacity) {
+        MissRatioCurveEstimator e = new MissRatioCurveEstimator(capacity, 0, 0, 0, null);
+        e.shutdown();
+        estimators.add(e);
+        return e;
+    }
+
+    @AfterEach
+    void tearDown() {
+        estimators.forEach(MissRatioCurveEstimator::shutdown);
+    }
+
+    // Loops over keys 1..n; every reuse has LRU stack distance n - 1
+    private static void cycle(MissRatioCurveEstimator e, int n, int rounds) {
+        for (int r = 0; r < rounds; r++) {
+            for (int k = 1; k <= n; k++) {
+                e.access(k);
+            }
+        }
+    }
+
+    @Test
+    void countsDistinctKeysBetweenReuses() {
+        MissRatioCurveEstimator e = estimator(256);
+        e.access(1);
+        e.access(2);
+        e.access(2);   // distance 0
+        e.access(3);
+        e.access(1);   // distance 2: keys 2 and 3, counted once each
+
+        // 5 references: 3 cold, one hit from size 1, one from size 3
+        assertThat(e.hitRatio(1)).isCloseTo(0.2, within(1e-9));
+        assertThat(e.hitRatio(2)).isCloseTo(0.2, within(1e-9));
+        assertThat(e.hitRatio(3)).isCloseTo(0.4, within(1e-9));
+    }
+
+    @Test
+    void cyclicTraceMatchesLru() {
+        MissRatioCurveEstimator e = estimator(256);
+        cycle(e, 100, 10);
+
+        // LRU on a loop larger than the cache misses every time; otherwise only the first round misses
+        assertThat(e.hitRatio(99)).isZero();
+        assertThat(e.hitRatio(100)).isCloseTo(0.9, within(1e-9));
+        assertThat(e.hitRatio(200)).isCloseTo(0.9, within(1e-9));
+    }
+
+    @Test
+    void interpolatesInsideAPartialBucket() {
+        // Buckets of 4: distance 99 lands in [96, 100)
+        MissRatioCurveEstimator e = estimator(1024);
+        cycle(e, 100, 10);
+
+        assertThat(e.hitRatio(96)).isZero();
+        assertThat(e.hitRatio(98)).isCloseTo(0.45, within(1e-9));
+        assertThat(e.hitRatio(100)).isCloseTo(0.9, within(1e-9));
+    }
+
+    @Test
+    void compactionKeepsDistancesExact() {
+        MissRatioCurveEstimator e = estimator(256);
+        int rounds = 400;
+        assertThat(100 * rounds).isGreaterThan(MissRatioCurveEstimator.TIMESTAMPS);
+        cycle(e, 100, rounds);
+
+        assertThat(e.hitRatio(99)).isZero();
+        assertThat(e.hitRatio(100)).isCloseTo(1 - 1.0 / rounds, within(1e-9));
+        assertThat(e.trackedKeys()).isEqualTo(100);
+    }
+
+    @Test
+    void lowersThresholdWhenTooManyKeysAreTracked() {
+        MissRatioCurveEstimator e = estimator(256);
+        long step = Long.MAX_VALUE / (2L * MissRatioCurveEstimator.MAX_TRACKED);
+        for (int i = 1; i <= MissRatioCurveEstimator.MAX_TRACKED + 1; i++) {
+            e.access(i * step);
+        }
+
+        // The largest hash is dropped and becomes the new threshold: about half the hash space
+        long largest = (MissRatioCurveEstimator.MAX_TRACKED + 1) * step;
+        assertThat(e.trackedKeys()).isEqualTo(MissRatioCurveEstimator.MAX_TRACKED);
+        assertThat(e.threshold()).isEqualTo(largest);
+        assertThat((double) e.curve().get("samplingRate")).isCloseTo(0.5, within(0.001));
+
+        // References to the dropped key (or anything above it) are ignored from now on
+        double before = (double) e.curve().get("sampledReferences");
+        e.access(largest);
+        e.access(largest + step);
+        assertThat((double) e.curve().get("sampledReferences")).isEqualTo(before);
+        assertThat(e.trackedKeys()).isEqualTo(MissRatioCurveEstimator.MAX_TRACKED);
+    }
+
+    @Test
+    void scalesSampledReferencesByTheSamplingRate() {
+        MissRatioCurveEstimator e = estimator(256);
+        long step = Long.MAX_VALUE / (2L * MissRatioCurveEstimator.MAX_TRACKED);
+        for (int i = 1; i <= MissRatioCurveEstimator.MAX_TRACKED + 1; i++) {
+            e.access(i * step);
+        }
+        double before = (double) e.curve().get("sampledReferences");
+
+        // At a ~1/2 sampling rate, one sampled reference stands for ~2 real ones
+        e.access(step);
+        assertThat((double) e.curve().get("sampledReferences") - before).isCloseTo(2.0, within(0.01));
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.cache.namespace;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.cache.core.CacheService;
+import com.example.cache.eviction.LruEvictionStrategy;
+import com.example.cache.refresh.NaiveTtlRefreshStrategy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class NamespaceManagerTest {
+
+    private static final Function<String, Object> FETCH = k -> "v";
+
+    private final List<CacheService> built = new ArrayList<>();
+    private final List<String> configured = new ArrayList<>();
+    private NamespaceManager manager;
+
+    // The scheduler is stopped so only the test triggers rebalance passes
+    private NamespaceManager manager(int pool) {
+        manager = new NamespaceManager(pool, (name, mode, ttl) -> {
+            configured.add(name + ":" + mode);
+            return capacity -> {
+                CacheService service = new CacheService(new LruEvictionStrategy(), new NaiveTtlRefreshStrategy(), capacity, ttl);
+                built.add(service);
+                return service;
+            };
+        }, service -> { });
+        manager.shutdown();
+        return manager;
+    }
+
+    @AfterEach
+    void tearDown() {
+        built.forEach(CacheService::shutdown);
+    }
+
+    private void fill(String name, int from, int count) throws Exception {
+        CacheService service = manager.service(name);
+        for (int i = from; i < from + count; i++) {
+            service.get(name + i, FETCH);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int stat(String name, String key) {
+        Map<String, Object> all = (Map<String, Object>) manager.stats().get("namespaces");
+        return (int) ((Map<String, Object>) all.get(name)).get(key);
+    }
+
+    @Test
+    void guaranteesFollowWeights() {
+        manager(10_000);
+        manager.define("small", 1, "M1", 60_000);
+        manager.define("big", 3, "M1", 60_000);
+
+        assertThat(stat("small", "guaranteedCapacity")).isEqualTo(2_500);
+        assertThat(stat("big", "guaranteedCapacity")).isEqualTo(7_500);
+    }
+
+    @Test
+    void rejectsNonPositiveWeight() {
+        manager(10_000);
+        assertThatThrownBy(() -> manager.define("a", 0, "M1", 60_000)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void nobodyLendsWithoutABorrower() {
+        manager(10_000);
+        manager.define("small", 1, "M1", 60_000);
+        manager.define("big", 3, "M1", 60_000);
+        manager.rebalance();
+
+        // Both empty and both under their guarantee: there is no one to lend to
+        assertThat(stat("small", "capacity")).isEqualTo(2_500);
+        assertThat(stat("big", "capacity")).isEqualTo(7_500);
+    }
+
+    @Test
+    void idleNamespaceLendsToAFullOne() throws Exception {
+        manager(10_000);
+        manager.define("idle", 1, "M1", 60_000);
+        manager.define("busy", 1, "M1", 60_000);
+        fill("busy", 0, 5_000);
+        manager.rebalance();
+
+        // idle keeps 10% headroom of its 5000 and lends the other 4500
+        assertThat(stat("idle", "capacity")).isEqualTo(500);
+        assertThat(stat("busy", "capacity")).isEqualTo(9_500);
+        assertThat(manager.service("busy").size()).isEqualTo(5_000);
+    }
+
+    @Test
+    void slowGrowthStaysLent() throws Exception {
+        manager(10_000);
+        manager.define("idle", 1, "M1", 60_000);
+        manager.define("busy", 1, "M1", 60_000);
+        fill("busy", 0, 5_000);
+        manager.rebalance();
+
+        // Less than half the headroom: headroom moves up with usage, the rest stays lent
+        fill("idle", 0, 100);
+        manager.rebalance();
+        assertThat(stat("idle", "capacity")).isEqualTo(600);
+        assertThat(stat("busy", "capacity")).isEqualTo(9_400);
+    }
+
+    @Test
+    void fillingLenderGetsItsGuaranteeBackAtOnce() throws Exception {
+        manager(10_000);
+        manager.define("idle", 1, "M1", 60_000);
+        manager.define("busy", 1, "M1", 60_000);
+        fill("busy", 0, 5_000);
+        manager.rebalance();
+        fill("busy", 5_000, 4_500);
+        assertThat(manager.service("busy").size()).isEqualTo(9_500);
+
+        // Grows through its headroom: full guarantee in one pass, and the borrower is shrunk back
+        fill("idle", 0, 300);
+        manager.rebalance();
+        assertThat(stat("idle", "capacity")).isEqualTo(5_000);
+        assertThat(stat("busy", "capacity")).isEqualTo(5_000);
+        assertThat(manager.service("busy").size()).isLessThanOrEqualTo(5_000);
+        assertThat(manager.service("idle").size()).isEqualTo(300);
+    }
+
+    @Test
+    void poolResizeRescalesGuaranteesAndShrinksBorrowers() throws Exception {
+        manager(10_000);
+        manager.define("a", 1, "M1", 60_000);
+        manager.define("b", 1, "M1", 60_000);
+        fill("a", 0, 5_000);
+
+        manager.setPoolCapacity(4_000);
+
+        // a (full) borrows all but b's 200 headroom, and is evicted down to that
+        assertThat(stat("a", "guaranteedCapacity")).isEqualTo(2_000);
+        assertThat(stat("b", "guaranteedCapacity")).isEqualTo(2_000);
+        assertThat(stat("b", "capacity")).isEqualTo(200);
+        assertThat(stat("a", "capacity")).isEqualTo(3_800);
+        assertThat(manager.service("a").size()).isLessThanOrEqualTo(3_800);
+
+        manager.setPoolCapacity(40_000);
+        assertThat(stat("a", "capacity")).isEqualTo(20_000);
+        assertThat(stat("b", "capacity")).isEqualTo(20_000);
+    }
+
+    @Test
+    void removingANamespaceReturnsItsShare() {
+        manager(10_000);
+        manager.define("a", 1, "M1", 60_000);
+        manager.define("b", 1, "M1", 60_000);
+        manager.remove("b");
+
+        assertThat(stat("a", "guaranteedCapacity")).isEqualTo(10_000);
+        assertThat(stat("a", "capacity")).isEqualTo(10_000);
+    }
+
+    @Test
+    void clearSwapsTheStoreButKeepsTheConfiguration() throws Exception {
+        manager(10_000);
+        manager.define("a", 1, "M1", 60_000);
+        fill("a", 0, 10);
+        CacheService before = manager.service("a");
+
+        manager.clear("a");
+
+        assertThat(manager.service("a")).isNotSameAs(before);
+        assertThat(manager.service("a").size()).isZero();
+        assertThat(stat("a", "capacity")).isEqualTo(10_000);
+        // Rebuilt from the builder captured at define time, not from the current configuration
+        assertThat(configured).containsExactly("a:M1");
+        assertThat(built).hasSize(2);
+    }
+}
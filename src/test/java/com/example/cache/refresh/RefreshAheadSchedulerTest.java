@@ -0,0 +1,114 @@
+package com.example.cache.refresh;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.cache.core.CacheEntry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RefreshAheadSchedulerTest {
+
+    private static final long LOAD_NANOS = 100_000_000; // 100ms
+    private static final Function<String, Object> FETCH = k -> "fresh-" + k;
+
+    private final ConcurrentHashMap<String, CacheEntry<Object>> store = new ConcurrentHashMap<>();
+    private final CountDownLatch refreshed = new CountDownLatch(1);
+    private RefreshAheadScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private RefreshAheadScheduler scheduler(double threshold, int maxTracked) {
+        scheduler = new RefreshAheadScheduler(store, (key, fetch) -> {
+            store.put(key, new CacheEntry<>(fetch.apply(key), System.currentTimeMillis() + 60_000, LOAD_NANOS));
+            refreshed.countDown();
+        }, threshold, new RefreshBudget(50), maxTracked);
+        return scheduler;
+    }
+
+    private void cache(String key, long expiresInMillis) {
+        store.put(key, new CacheEntry<>("old-" + key, System.currentTimeMillis() + expiresInMillis, LOAD_NANOS));
+    }
+
+    private static void access(RefreshAheadScheduler s, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            s.recordAccess(key, FETCH);
+        }
+    }
+
+    @Test
+    void busyKeyIsReloadedBeforeItExpires() throws Exception {
+        RefreshAheadScheduler s = scheduler(0.1, 100);
+        cache("k", 250);
+        access(s, "k", 50); // ~5 req/s x 0.1s load = 0.5 requests expected per reload
+
+        assertThat(refreshed.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(store.get("k").value).isEqualTo("fresh-k");
+        assertThat(s.stats().get("refreshAheadScheduled")).isEqualTo(1L);
+    }
+
+    @Test
+    void quietKeyIsLeftToExpire() throws Exception {
+        RefreshAheadScheduler s = scheduler(10, 100);
+        cache("k", 250);
+        access(s, "k", 5);
+
+        assertThat(refreshed.await(500, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(store.get("k").value).isEqualTo("old-k");
+    }
+
+    @Test
+    void missesForUncachedKeysAreNotTracked() {
+        RefreshAheadScheduler s = scheduler(0.1, 100);
+        access(s, "missing", 10);
+
+        assertThat(s.stats().get("refreshAheadTrackedKeys")).isEqualTo(0);
+    }
+
+    @Test
+    void trackedKeysAreBounded() {
+        RefreshAheadScheduler s = scheduler(0.1, 2);
+        for (String key : new String[] {"a", "b", "c"}) {
+            cache(key, 60_000);
+            access(s, key, 1);
+        }
+
+        assertThat(s.stats().get("refreshAheadTrackedKeys")).isEqualTo(2);
+        assertThat(s.stats().get("refreshAheadUntrackedAccesses")).isEqualTo(1L);
+    }
+
+    @Test
+    void evictedKeysAreForgotten() throws Exception {
+        RefreshAheadScheduler s = scheduler(0.1, 100);
+        cache("k", 60_000);
+        access(s, "k", 1);
+        store.remove("k");
+
+        Thread.sleep(1_300); // at least one full scan
+        assertThat(s.stats().get("refreshAheadTrackedKeys")).isEqualTo(0);
+    }
+
+    @Test
+    void trackingLimitFollowsCapacityChanges() {
+        RefreshAheadScheduler s = scheduler(0.1, 1);
+        for (String key : new String[] {"a", "b", "c"}) {
+            cache(key, 60_000);
+        }
+        access(s, "a", 1);
+        access(s, "b", 1);
+        assertThat(s.stats().get("refreshAheadTrackedKeys")).isEqualTo(1);
+
+        s.setMaxTracked(3);
+        access(s, "b", 1);
+        access(s, "c", 1);
+        assertThat(s.stats().get("refreshAheadTrackedKeys")).isEqualTo(3);
+    }
+}
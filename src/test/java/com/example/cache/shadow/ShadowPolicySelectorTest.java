@@ -0,0 +1,131 @@
+package com.example.cache.shadow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ShadowPolicySelectorTest {
+
+    private static final int CAPACITY = 10;
+    private static final int HOT_KEYS = 5;
+
+    private final List<String> switchedTo = new ArrayList<>();
+    private ShadowPolicySelector selector;
+    private int scanKey;
+
+    // sampling=1 keeps every key; the worker is stopped so only the test closes windows
+    private ShadowPolicySelector selector(String live) {
+        selector = new ShadowPolicySelector(CAPACITY, 1, live, switchedTo::add);
+        selector.shutdown();
+        return selector;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (selector != null) {
+            selector.shutdown();
+        }
+    }
+
+    // Hot keys (touched twice, so SIEVE marks them visited) between scans of one-off keys:
+    // a scan flushes the hot set out of LRU, SIEVE keeps it. Miss ratio 0.75 vs 0.50.
+    private void scanWindow() {
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 2 * HOT_KEYS; i++) {
+                selector.access("hot" + i % HOT_KEYS);
+            }
+            for (int i = 0; i < CAPACITY; i++) {
+                selector.access("scan" + scanKey++);
+            }
+        }
+        selector.evaluate();
+    }
+
+    // Only the hot set: both policies hit almost everything, well inside the margin
+    private void hotOnlyWindow() {
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < HOT_KEYS; i++) {
+                selector.access("hot" + i);
+            }
+        }
+        selector.evaluate();
+    }
+
+    private double missRatio(String policy) {
+        return (double) selector.stats().get("shadowMissRatio" + policy);
+    }
+
+    @Test
+    void switchesAfterThreeWinningWindows() {
+        selector(ShadowPolicySelector.LRU);
+
+        scanWindow();
+        scanWindow();
+        assertThat(switchedTo).isEmpty();
+        assertThat(missRatio(ShadowPolicySelector.SIEVE)).isLessThan(missRatio(ShadowPolicySelector.LRU) - 0.01);
+
+        scanWindow();
+        assertThat(switchedTo).containsExactly(ShadowPolicySelector.SIEVE);
+        assertThat(selector.stats()).containsEntry("policySwitches", 1L);
+    }
+
+    @Test
+    void staysWhenTheLivePolicyIsAlreadyBest() {
+        selector(ShadowPolicySelector.SIEVE);
+        for (int i = 0; i < 5; i++) {
+            scanWindow();
+        }
+        assertThat(switchedTo).isEmpty();
+    }
+
+    @Test
+    void windowWithinMarginResetsTheStreak() {
+        selector(ShadowPolicySelector.LRU);
+        scanWindow();
+        scanWindow();
+
+        hotOnlyWindow();
+        double gap = missRatio(ShadowPolicySelector.LRU) - missRatio(ShadowPolicySelector.SIEVE);
+        assertThat(gap).isLessThan(0.01);
+
+        scanWindow();
+        scanWindow();
+        assertThat(switchedTo).isEmpty();
+        scanWindow();
+        assertThat(switchedTo).containsExactly(ShadowPolicySelector.SIEVE);
+    }
+
+    @Test
+    void quietWindowKeepsTheStreak() {
+        selector(ShadowPolicySelector.LRU);
+        scanWindow();
+        scanWindow();
+
+        // Fewer than MIN_WINDOW_SAMPLES accesses: no verdict either way
+        selector.access("hot0");
+        selector.evaluate();
+        assertThat(switchedTo).isEmpty();
+
+        scanWindow();
+        assertThat(switchedTo).containsExactly(ShadowPolicySelector.SIEVE);
+    }
+
+    @Test
+    void streakStartsOverAfterASwitch() {
+        selector(ShadowPolicySelector.LRU);
+        for (int i = 0; i < 3; i++) {
+            scanWindow();
+        }
+        assertThat(switchedTo).hasSize(1);
+
+        // Controller did not call setLive, so SIEVE still wins against live LRU; needs 3 more windows
+        scanWindow();
+        scanWindow();
+        assertThat(switchedTo).hasSize(1);
+        scanWindow();
+        assertThat(switchedTo).hasSize(2);
+    }
+}